@@ -36,6 +36,8 @@ public final class FieldInjector<T> implements Injector<T> {
 
     private final Value<?> target;
     private final Field field;
+    // the value stored on uninjection, resolved once rather than by field type on every call
+    private final Object zero;
 
     /**
      * Construct a new instance.
@@ -46,6 +48,7 @@ public final class FieldInjector<T> implements Injector<T> {
     public FieldInjector(final Value<?> target, final Field field) {
         this.target = target;
         this.field = field;
+        zero = field == null ? null : zeroOf(field.getType());
     }
 
     /** {@inheritDoc} */
@@ -59,51 +62,34 @@ public final class FieldInjector<T> implements Injector<T> {
 
     /** {@inheritDoc} */
     public void uninject() {
-        final Field field = this.field;
         try {
-            Class<?> fieldType = field.getType();
-            Object targetValue = target.getValue();
-            if (fieldType.isPrimitive()) {
-                uninjectPrimitive(field, fieldType, targetValue);
-            } else {
-                field.set(targetValue, null);
-            }
+            field.set(target.getValue(), zero);
         } catch (Throwable throwable) {
             InjectorLogger.INSTANCE.uninjectFailed(throwable, field);
         }
     }
 
-    private void uninjectPrimitive(Field field, Class<?> fieldType, Object targetValue)
-        throws IllegalArgumentException, IllegalAccessException {
-        
-        switch(fieldType.getName().toString().charAt(0)) {
-            case 'b':
-                if (fieldType == byte.class) {
-                    field.setByte(targetValue, (byte) 0);
-                } else { // fieldType is boolean.class
-                    field.setBoolean(targetValue, false);
-                }
-                break;
-            case 'c': // char
-                field.setChar(targetValue, '\u0000');
-                break;
-            case 'd':// double
-                field.setDouble(targetValue, 0.0);
-                break;
-            case 'f':// float
-                field.setFloat(targetValue, 0.0f);
-                break;
-            case 'i':// int
-                field.setInt(targetValue, 0);
-                break;
-            case 'l':// long
-                field.setLong(targetValue, 0l);
-                break;
-            case 's':// short
-                field.setShort(targetValue, (short) 0);
-                break;
-            default:
-                throw new IllegalStateException("Unexpected field primitive type " + fieldType.getName());
+    private static Object zeroOf(final Class<?> fieldType) {
+        if (! fieldType.isPrimitive()) {
+            return null;
+        } else if (fieldType == boolean.class) {
+            return Boolean.FALSE;
+        } else if (fieldType == byte.class) {
+            return Byte.valueOf((byte) 0);
+        } else if (fieldType == char.class) {
+            return Character.valueOf('\u0000');
+        } else if (fieldType == double.class) {
+            return Double.valueOf(0.0);
+        } else if (fieldType == float.class) {
+            return Float.valueOf(0.0f);
+        } else if (fieldType == int.class) {
+            return Integer.valueOf(0);
+        } else if (fieldType == long.class) {
+            return Long.valueOf(0L);
+        } else if (fieldType == short.class) {
+            return Short.valueOf((short) 0);
+        } else {
+            throw new IllegalStateException("Unexpected field primitive type " + fieldType.getName());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.inject;
+
+import java.lang.reflect.Member;
+
+/**
+ * An injector which delegates to a generated class, with the error handling of the reflective injectors.
+ *
+ * @param <T> the injection type
+ */
+final class GeneratedInjector<T> implements Injector<T> {
+    private final Injector<Object> generated;
+    private final Member member;
+    private final String failureMessage;
+
+    GeneratedInjector(final Injector<Object> generated, final Member member, final String failureMessage) {
+        this.generated = generated;
+        this.member = member;
+        this.failureMessage = failureMessage;
+    }
+
+    /** {@inheritDoc} */
+    public void inject(final T value) throws InjectionException {
+        try {
+            generated.inject(value);
+        } catch (Throwable t) {
+            throw new InjectionException(failureMessage, t);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void uninject() {
+        try {
+            generated.uninject();
+        } catch (Throwable t) {
+            InjectorLogger.INSTANCE.uninjectFailed(t, member);
+        }
+    }
+
+    /**
+     * A generated {@code int} injector, with the error handling of the reflective injectors.
+     */
+    static final class OfInt implements IntInjector {
+        private final IntInjector generated;
+        private final Member member;
+        private final String failureMessage;
+
+        OfInt(final IntInjector generated, final Member member, final String failureMessage) {
+            this.generated = generated;
+            this.member = member;
+            this.failureMessage = failureMessage;
+        }
+
+        public void injectInt(final int value) throws InjectionException {
+            try {
+                generated.injectInt(value);
+            } catch (Throwable t) {
+                throw new InjectionException(failureMessage, t);
+            }
+        }
+
+        public void inject(final Integer value) throws InjectionException {
+            try {
+                generated.inject(value);
+            } catch (Throwable t) {
+                throw new InjectionException(failureMessage, t);
+            }
+        }
+
+        public void uninject() {
+            try {
+                generated.uninject();
+            } catch (Throwable t) {
+                InjectorLogger.INSTANCE.uninjectFailed(t, member);
+            }
+        }
+    }
+
+    /**
+     * A generated {@code long} injector, with the error handling of the reflective injectors.
+     */
+    static final class OfLong implements LongInjector {
+        private final LongInjector generated;
+        private final Member member;
+        private final String failureMessage;
+
+        OfLong(final LongInjector generated, final Member member, final String failureMessage) {
+            this.generated = generated;
+            this.member = member;
+            this.failureMessage = failureMessage;
+        }
+
+        public void injectLong(final long value) throws InjectionException {
+            try {
+                generated.injectLong(value);
+            } catch (Throwable t) {
+                throw new InjectionException(failureMessage, t);
+            }
+        }
+
+        public void inject(final Long value) throws InjectionException {
+            try {
+                generated.inject(value);
+            } catch (Throwable t) {
+                throw new InjectionException(failureMessage, t);
+            }
+        }
+
+        public void uninject() {
+            try {
+                generated.uninject();
+            } catch (Throwable t) {
+                InjectorLogger.INSTANCE.uninjectFailed(t, member);
+            }
+        }
+    }
+
+    /**
+     * A generated {@code boolean} injector, with the error handling of the reflective injectors.
+     */
+    static final class OfBoolean implements BooleanInjector {
+        private final BooleanInjector generated;
+        private final Member member;
+        private final String failureMessage;
+
+        OfBoolean(final BooleanInjector generated, final Member member, final String failureMessage) {
+            this.generated = generated;
+            this.member = member;
+            this.failureMessage = failureMessage;
+        }
+
+        public void injectBoolean(final boolean value) throws InjectionException {
+            try {
+                generated.injectBoolean(value);
+            } catch (Throwable t) {
+                throw new InjectionException(failureMessage, t);
+            }
+        }
+
+        public void inject(final Boolean value) throws InjectionException {
+            try {
+                generated.inject(value);
+            } catch (Throwable t) {
+                throw new InjectionException(failureMessage, t);
+            }
+        }
+
+        public void uninject() {
+            try {
+                generated.uninject();
+            } catch (Throwable t) {
+                InjectorLogger.INSTANCE.uninjectFailed(t, member);
+            }
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.inject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.msc.value.Value;
+
+/**
+ * Generator of injector classes which set a public field or call a public setter directly.  Each generated class
+ * implements {@link Injector} with a constructor taking the target {@link Value}; {@code inject()} stores the value
+ * and {@code uninject()} stores {@code null}, without any error handling, which is left to {@link GeneratedInjector}.
+ * <p>
+ * The classes are defined by a class loader per target class loader, which resolves the injector and value types
+ * from this class loader and everything else from the target class loader.  Since they are in a different runtime
+ * package, only public members of public classes can be accessed.  Members of type {@code int}, {@code long} or
+ * {@code boolean} get a class implementing {@link IntInjector}, {@link LongInjector} or {@link BooleanInjector}
+ * respectively, whose {@code uninject()} stores zero or {@code false}; for the generic injectors, members with
+ * primitive types are left to the reflective injectors, which handle widening conversions.
+ */
+final class InjectorClassGenerator {
+
+    private static final String INJECTOR = "org/jboss/msc/inject/Injector";
+    private static final String INT_INJECTOR = "org/jboss/msc/inject/IntInjector";
+    private static final String LONG_INJECTOR = "org/jboss/msc/inject/LongInjector";
+    private static final String BOOLEAN_INJECTOR = "org/jboss/msc/inject/BooleanInjector";
+    private static final String VALUE = "org/jboss/msc/value/Value";
+    private static final String VALUE_DESCRIPTOR = "L" + VALUE + ";";
+    private static final String PACKAGE = "org.jboss.msc.inject.generated.";
+
+    private static final AtomicInteger count = new AtomicInteger();
+
+    private static final Map<ClassLoader, WeakReference<GeneratorClassLoader>> loaders = new WeakHashMap<ClassLoader, WeakReference<GeneratorClassLoader>>();
+
+    private InjectorClassGenerator() {
+    }
+
+    /**
+     * Get the constructor of the generated injector class for a field or setter method.
+     *
+     * @param member the field or method
+     * @return the constructor, taking the target value, or {@code null} if no class can be generated for it
+     */
+    static Constructor<?> getInjectorConstructor(final Member member) {
+        return getInjectorConstructor(member, false);
+    }
+
+    /**
+     * Get the constructor of the generated primitive injector class for a field or setter method of type {@code int},
+     * {@code long} or {@code boolean}.
+     *
+     * @param member the field or method
+     * @return the constructor, taking the target value, or {@code null} if no class can be generated for it
+     */
+    static Constructor<?> getPrimitiveInjectorConstructor(final Member member) {
+        return getInjectorConstructor(member, true);
+    }
+
+    private static Constructor<?> getInjectorConstructor(final Member member, final boolean primitive) {
+        if (! isSupported(member, primitive)) {
+            return null;
+        }
+        try {
+            return getLoader(member.getDeclaringClass().getClassLoader()).getInjectorConstructor(member);
+        } catch (Throwable ignored) {
+            // class definition is not permitted or failed; the caller falls back to reflection
+            return null;
+        }
+    }
+
+    private static boolean isSupported(final Member member, final boolean primitive) {
+        if (! Modifier.isPublic(member.getModifiers()) || ! isAccessible(member.getDeclaringClass())) {
+            return false;
+        }
+        final Class<?> type;
+        if (member instanceof Field) {
+            if (Modifier.isFinal(member.getModifiers())) {
+                return false;
+            }
+            type = ((Field) member).getType();
+        } else if (member instanceof Method) {
+            final Class<?>[] parameterTypes = ((Method) member).getParameterTypes();
+            if (parameterTypes.length != 1 || Modifier.isStatic(member.getModifiers()) && member.getDeclaringClass().isInterface()) {
+                return false;
+            }
+            type = parameterTypes[0];
+        } else {
+            return false;
+        }
+        return primitive ? primitiveInjector(type) != null : ! type.isPrimitive() && isAccessible(type);
+    }
+
+    private static String primitiveInjector(final Class<?> type) {
+        if (type == int.class) {
+            return INT_INJECTOR;
+        } else if (type == long.class) {
+            return LONG_INJECTOR;
+        } else if (type == boolean.class) {
+            return BOOLEAN_INJECTOR;
+        } else {
+            return null;
+        }
+    }
+
+    private static boolean isAccessible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        for (Class<?> c = clazz; c != null; c = c.getDeclaringClass()) {
+            if (! c.isPrimitive() && ! Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static GeneratorClassLoader getLoader(final ClassLoader parent) {
+        synchronized (loaders) {
+            final WeakReference<GeneratorClassLoader> ref = loaders.get(parent);
+            GeneratorClassLoader loader = ref == null ? null : ref.get();
+            if (loader == null) {
+                loader = AccessController.doPrivileged(new PrivilegedAction<GeneratorClassLoader>() {
+                    public GeneratorClassLoader run() {
+                        return new GeneratorClassLoader(parent);
+                    }
+                });
+                loaders.put(parent, new WeakReference<GeneratorClassLoader>(loader));
+            }
+            return loader;
+        }
+    }
+
+    static final class GeneratorClassLoader extends ClassLoader {
+        // the generated classes keep this loader reachable for as long as any of their injectors is
+        private final Map<Member, Constructor<?>> constructors = new HashMap<Member, Constructor<?>>();
+
+        GeneratorClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (name.equals(Injector.class.getName())) {
+                return Injector.class;
+            } else if (name.equals(IntInjector.class.getName())) {
+                return IntInjector.class;
+            } else if (name.equals(LongInjector.class.getName())) {
+                return LongInjector.class;
+            } else if (name.equals(BooleanInjector.class.getName())) {
+                return BooleanInjector.class;
+            } else if (name.equals(Value.class.getName())) {
+                return Value.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized Constructor<?> getInjectorConstructor(final Member member) throws NoSuchMethodException {
+            Constructor<?> constructor = constructors.get(member);
+            if (constructor == null) {
+                final String name = PACKAGE + "Injector" + count.incrementAndGet();
+                final byte[] bytes = generate(name.replace('.', '/'), member);
+                final Class<?> clazz = defineClass(name, bytes, 0, bytes.length, InjectorClassGenerator.class.getProtectionDomain());
+                constructor = clazz.getConstructor(Value.class);
+                constructors.put(member, constructor);
+            }
+            return constructor;
+        }
+    }
+
+    static byte[] generate(final String className, final Member member) {
+        final Class<?> declaringClass = member.getDeclaringClass();
+        final boolean isStatic = Modifier.isStatic(member.getModifiers());
+        final Class<?> type = member instanceof Field ? ((Field) member).getType() : ((Method) member).getParameterTypes()[0];
+        final String primitiveInjector = primitiveInjector(type);
+        final ClassWriter writer = new ClassWriter(className, primitiveInjector != null ? primitiveInjector : INJECTOR);
+        final int memberRef;
+        final byte store;
+        final int resultSize;
+        if (member instanceof Field) {
+            memberRef = writer.fieldRef(internalName(declaringClass), member.getName(), descriptor(type));
+            store = isStatic ? PUTSTATIC : PUTFIELD;
+            resultSize = 0;
+        } else {
+            final Method method = (Method) member;
+            final String descriptor = "(" + descriptor(type) + ")" + descriptor(method.getReturnType());
+            if (declaringClass.isInterface()) {
+                memberRef = writer.interfaceMethodRef(internalName(declaringClass), method.getName(), descriptor);
+                store = INVOKEINTERFACE;
+            } else {
+                memberRef = writer.methodRef(internalName(declaringClass), method.getName(), descriptor);
+                store = isStatic ? INVOKESTATIC : INVOKEVIRTUAL;
+            }
+            final Class<?> returnType = method.getReturnType();
+            resultSize = returnType == void.class ? 0 : returnType == long.class || returnType == double.class ? 2 : 1;
+        }
+        if (primitiveInjector == null) {
+            final int typeRef = type == Object.class ? 0 : writer.classRef(internalName(type));
+            Code code = store(writer, declaringClass, type, isStatic, new Code().op(ALOAD_1), memberRef, store, resultSize, typeRef);
+            writer.method("inject", "(Ljava/lang/Object;)V", 3, 2, code);
+            code = store(writer, declaringClass, type, isStatic, new Code().op(ACONST_NULL), memberRef, store, resultSize, 0);
+            writer.method("uninject", "()V", 3, 1, code);
+        } else {
+            final boolean wide = type == long.class;
+            final String typeDescriptor = descriptor(type);
+            final String name = type == int.class ? "Int" : wide ? "Long" : "Boolean";
+            final String box = "java/lang/" + (type == int.class ? "Integer" : name);
+            Code code = store(writer, declaringClass, type, isStatic, new Code().op(wide ? LLOAD_1 : ILOAD_1), memberRef, store, resultSize, 0);
+            writer.method("inject" + name, "(" + typeDescriptor + ")V", 3, wide ? 3 : 2, code);
+            code = store(writer, declaringClass, type, isStatic, new Code().op(wide ? LCONST_0 : ICONST_0), memberRef, store, resultSize, 0);
+            writer.method("uninject", "()V", 3, 1, code);
+            // the erased inject() unboxes and delegates to the primitive method
+            code = new Code().op(ALOAD_0).op(ALOAD_1).op(CHECKCAST).u2(writer.classRef(box));
+            code.op(INVOKEVIRTUAL).u2(writer.methodRef(box, type.getName() + "Value", "()" + typeDescriptor));
+            code.op(INVOKEVIRTUAL).u2(writer.methodRef(className, "inject" + name, "(" + typeDescriptor + ")V")).op(RETURN);
+            writer.method("inject", "(Ljava/lang/Object;)V", 3, 2, code);
+        }
+        return writer.toByteArray();
+    }
+
+    private static Code store(final ClassWriter writer, final Class<?> declaringClass, final Class<?> type, final boolean isStatic, final Code load, final int memberRef, final byte store, final int resultSize, final int typeRef) {
+        final Code code = new Code();
+        // evaluate the target even for static members, as the reflective injectors do
+        code.op(ALOAD_0).op(GETFIELD).u2(writer.fieldRef(writer.className, "target", VALUE_DESCRIPTOR));
+        code.op(INVOKEINTERFACE).u2(writer.interfaceMethodRef(VALUE, "getValue", "()Ljava/lang/Object;")).u1(1).u1(0);
+        if (isStatic) {
+            code.op(POP);
+        } else {
+            code.op(CHECKCAST).u2(writer.classRef(internalName(declaringClass)));
+        }
+        code.append(load);
+        if (typeRef != 0) {
+            code.op(CHECKCAST).u2(typeRef);
+        }
+        code.op(store).u2(memberRef);
+        if (store == INVOKEINTERFACE) {
+            code.u1(type == long.class ? 3 : 2).u1(0);
+        }
+        if (resultSize == 1) {
+            code.op(POP);
+        } else if (resultSize == 2) {
+            code.op(POP2);
+        }
+        return code.op(RETURN);
+    }
+
+    static String internalName(final Class<?> clazz) {
+        return clazz.isArray() ? descriptor(clazz) : clazz.getName().replace('.', '/');
+    }
+
+    static String descriptor(final Class<?> clazz) {
+        if (clazz.isArray()) {
+            return clazz.getName().replace('.', '/');
+        } else if (! clazz.isPrimitive()) {
+            return "L" + internalName(clazz) + ";";
+        } else if (clazz == void.class) {
+            return "V";
+        } else if (clazz == boolean.class) {
+            return "Z";
+        } else if (clazz == byte.class) {
+            return "B";
+        } else if (clazz == char.class) {
+            return "C";
+        } else if (clazz == short.class) {
+            return "S";
+        } else if (clazz == int.class) {
+            return "I";
+        } else if (clazz == long.class) {
+            return "J";
+        } else if (clazz == float.class) {
+            return "F";
+        } else {
+            return "D";
+        }
+    }
+
+    private static final byte ACONST_NULL = 0x01;
+    private static final byte ICONST_0 = 0x03;
+    private static final byte LCONST_0 = 0x09;
+    private static final byte ILOAD_1 = 0x1b;
+    private static final byte LLOAD_1 = 0x1f;
+    private static final byte ALOAD_0 = 0x2a;
+    private static final byte ALOAD_1 = 0x2b;
+    private static final byte POP = 0x57;
+    private static final byte POP2 = 0x58;
+    private static final byte RETURN = (byte) 0xb1;
+    private static final byte PUTSTATIC = (byte) 0xb3;
+    private static final byte GETFIELD = (byte) 0xb4;
+    private static final byte PUTFIELD = (byte) 0xb5;
+    private static final byte INVOKEVIRTUAL = (byte) 0xb6;
+    private static final byte INVOKESPECIAL = (byte) 0xb7;
+    private static final byte INVOKESTATIC = (byte) 0xb8;
+    private static final byte INVOKEINTERFACE = (byte) 0xb9;
+    private static final byte CHECKCAST = (byte) 0xc0;
+
+    /**
+     * The bytecode of one method.
+     */
+    static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(final byte op) {
+            bytes.write(op);
+            return this;
+        }
+
+        Code u1(final int v) {
+            bytes.write(v);
+            return this;
+        }
+
+        Code u2(final int v) {
+            bytes.write(v >> 8);
+            bytes.write(v);
+            return this;
+        }
+
+        Code append(final Code code) {
+            final byte[] b = code.bytes.toByteArray();
+            bytes.write(b, 0, b.length);
+            return this;
+        }
+    }
+
+    /**
+     * A writer of a class file of version 49, which needs no stack map frames, for a public final class implementing
+     * {@link Injector} or one of its primitive specializations with a single {@link Value} field set by its constructor.
+     */
+    static final class ClassWriter {
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndexes = new HashMap<String, Integer>();
+        private int poolCount = 1;
+        private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+        private final DataOutputStream methods = new DataOutputStream(methodBytes);
+        private int methodCount;
+        private final String className;
+        private final String interfaceName;
+
+        ClassWriter(final String className, final String interfaceName) {
+            this.className = className;
+            this.interfaceName = interfaceName;
+            final Code init = new Code();
+            init.op(ALOAD_0).op(INVOKESPECIAL).u2(methodRef("java/lang/Object", "<init>", "()V"));
+            init.op(ALOAD_0).op(ALOAD_1).op(PUTFIELD).u2(fieldRef(className, "target", VALUE_DESCRIPTOR)).op(RETURN);
+            method("<init>", "(" + VALUE_DESCRIPTOR + ")V", 2, 2, init);
+        }
+
+        private int constant(final String key, final int tag, final int a, final int b, final String utf) {
+            final Integer existing = poolIndexes.get(key);
+            if (existing != null) {
+                return existing.intValue();
+            }
+            try {
+                pool.writeByte(tag);
+                if (utf != null) {
+                    pool.writeUTF(utf);
+                } else {
+                    pool.writeShort(a);
+                    if (b != -1) {
+                        pool.writeShort(b);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            final int index = poolCount++;
+            poolIndexes.put(key, Integer.valueOf(index));
+            return index;
+        }
+
+        int utf8(final String value) {
+            return constant("U" + value, 1, 0, -1, value);
+        }
+
+        int classRef(final String internalName) {
+            return constant("C" + internalName, 7, utf8(internalName), -1, null);
+        }
+
+        private int nameAndType(final String name, final String descriptor) {
+            return constant("N" + name + " " + descriptor, 12, utf8(name), utf8(descriptor), null);
+        }
+
+        int fieldRef(final String owner, final String name, final String descriptor) {
+            return constant("F" + owner + "." + name + " " + descriptor, 9, classRef(owner), nameAndType(name, descriptor), null);
+        }
+
+        int methodRef(final String owner, final String name, final String descriptor) {
+            return constant("M" + owner + "." + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor), null);
+        }
+
+        int interfaceMethodRef(final String owner, final String name, final String descriptor) {
+            return constant("I" + owner + "." + name + descriptor, 11, classRef(owner), nameAndType(name, descriptor), null);
+        }
+
+        void method(final String name, final String descriptor, final int maxStack, final int maxLocals, final Code code) {
+            final byte[] bytecode = code.bytes.toByteArray();
+            try {
+                methods.writeShort(Modifier.PUBLIC);
+                methods.writeShort(utf8(name));
+                methods.writeShort(utf8(descriptor));
+                methods.writeShort(1);
+                methods.writeShort(utf8("Code"));
+                methods.writeInt(12 + bytecode.length);
+                methods.writeShort(maxStack);
+                methods.writeShort(maxLocals);
+                methods.writeInt(bytecode.length);
+                methods.write(bytecode);
+                // no exception table and no attributes
+                methods.writeShort(0);
+                methods.writeShort(0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            methodCount++;
+        }
+
+        byte[] toByteArray() {
+            final int thisClass = classRef(className);
+            final int superClass = classRef("java/lang/Object");
+            final int injector = classRef(interfaceName);
+            final int fieldName = utf8("target");
+            final int fieldDescriptor = utf8(VALUE_DESCRIPTOR);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                out.writeShort(poolCount);
+                poolBytes.writeTo(out);
+                out.writeShort(Modifier.PUBLIC | Modifier.FINAL | 0x20); // ACC_SUPER
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(injector);
+                out.writeShort(1);
+                out.writeShort(Modifier.PRIVATE | Modifier.FINAL);
+                out.writeShort(fieldName);
+                out.writeShort(fieldDescriptor);
+                out.writeShort(0);
+                out.writeShort(methodCount);
+                methodBytes.writeTo(out);
+                out.writeShort(0);
+                out.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -22,6 +22,13 @@
 
 package org.jboss.msc.inject;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+import org.jboss.msc.value.Value;
+
 /**
  * Utility class to construct injector types.
  *
@@ -43,4 +50,280 @@ public final class Injectors {
     public static <T> Injector<Object> cast(Injector<T> injector, Class<T> type) {
         return new CastingInjector<T>(injector, type);
     }
+
+    /**
+     * Construct an injector which updates the value of a field, like {@link FieldInjector}.  If the field and its
+     * class are public and the field is neither final nor primitive, the injector uses a generated class which sets
+     * the field directly; otherwise, or if defining classes is not permitted, a {@link FieldInjector} is returned.
+     *
+     * @param target the object whose field is to be updated
+     * @param field the field to update
+     * @param <T> the type of the injected value
+     * @return the injector
+     */
+    public static <T> Injector<T> fieldInjector(Value<?> target, Field field) {
+        final Injector<T> injector = generated(target, field, "Failed to inject value into field");
+        return injector != null ? injector : new FieldInjector<T>(target, field);
+    }
+
+    /**
+     * Construct an injector which calls a setter method, like {@link SetMethodInjector}.  If the method and its class
+     * are public and its parameter is not primitive, the injector uses a generated class which calls the method
+     * directly; otherwise, or if defining classes is not permitted, a {@link SetMethodInjector} is returned.
+     *
+     * @param target the object upon which the method is to be called
+     * @param method the method to invoke
+     * @param <T> the type of the injected value
+     * @return the injector
+     */
+    public static <T> Injector<T> setMethodInjector(Value<?> target, Method method) {
+        final Injector<T> injector = generated(target, method, "Failed to inject value into method");
+        return injector != null ? injector : SetMethodInjector.<T>create(target, method);
+    }
+
+    /**
+     * Construct an injector which updates the value of an {@code int} field without boxing.  If the field and its
+     * class are public and the field is not final, the injector uses a generated class which sets the field directly;
+     * otherwise, or if defining classes is not permitted, the value is boxed and injected by a {@link FieldInjector}.
+     *
+     * @param target the object whose field is to be updated
+     * @param field the field to update
+     * @return the injector
+     */
+    public static IntInjector intFieldInjector(Value<?> target, Field field) {
+        final IntInjector injector = generatedInt(target, field, "Failed to inject value into field");
+        return injector != null ? injector : new BoxingIntInjector(new FieldInjector<Integer>(target, field), field);
+    }
+
+    /**
+     * Construct an injector which calls a setter method taking an {@code int} without boxing.  If the method and
+     * its class are public, the injector uses a generated class which calls the method directly; otherwise, or if
+     * defining classes is not permitted, the value is boxed and injected by a {@link SetMethodInjector}.
+     *
+     * @param target the object upon which the method is to be called
+     * @param method the method to invoke
+     * @return the injector
+     */
+    public static IntInjector intSetMethodInjector(Value<?> target, Method method) {
+        final IntInjector injector = generatedInt(target, method, "Failed to inject value into method");
+        return injector != null ? injector : new BoxingIntInjector(SetMethodInjector.<Integer>create(target, method), method);
+    }
+
+    /**
+     * Construct an injector which updates the value of a {@code long} field without boxing.  If the field and its
+     * class are public and the field is not final, the injector uses a generated class which sets the field directly;
+     * otherwise, or if defining classes is not permitted, the value is boxed and injected by a {@link FieldInjector}.
+     *
+     * @param target the object whose field is to be updated
+     * @param field the field to update
+     * @return the injector
+     */
+    public static LongInjector longFieldInjector(Value<?> target, Field field) {
+        final LongInjector injector = generatedLong(target, field, "Failed to inject value into field");
+        return injector != null ? injector : new BoxingLongInjector(new FieldInjector<Long>(target, field), field);
+    }
+
+    /**
+     * Construct an injector which calls a setter method taking a {@code long} without boxing.  If the method and
+     * its class are public, the injector uses a generated class which calls the method directly; otherwise, or if
+     * defining classes is not permitted, the value is boxed and injected by a {@link SetMethodInjector}.
+     *
+     * @param target the object upon which the method is to be called
+     * @param method the method to invoke
+     * @return the injector
+     */
+    public static LongInjector longSetMethodInjector(Value<?> target, Method method) {
+        final LongInjector injector = generatedLong(target, method, "Failed to inject value into method");
+        return injector != null ? injector : new BoxingLongInjector(SetMethodInjector.<Long>create(target, method), method);
+    }
+
+    /**
+     * Construct an injector which updates the value of a {@code boolean} field without boxing.  If the field and its
+     * class are public and the field is not final, the injector uses a generated class which sets the field directly;
+     * otherwise, or if defining classes is not permitted, the value is boxed and injected by a {@link FieldInjector}.
+     *
+     * @param target the object whose field is to be updated
+     * @param field the field to update
+     * @return the injector
+     */
+    public static BooleanInjector booleanFieldInjector(Value<?> target, Field field) {
+        final BooleanInjector injector = generatedBoolean(target, field, "Failed to inject value into field");
+        return injector != null ? injector : new BoxingBooleanInjector(new FieldInjector<Boolean>(target, field), field);
+    }
+
+    /**
+     * Construct an injector which calls a setter method taking a {@code boolean} without boxing.  If the method and
+     * its class are public, the injector uses a generated class which calls the method directly; otherwise, or if
+     * defining classes is not permitted, the value is boxed and injected by a {@link SetMethodInjector}.
+     *
+     * @param target the object upon which the method is to be called
+     * @param method the method to invoke
+     * @return the injector
+     */
+    public static BooleanInjector booleanSetMethodInjector(Value<?> target, Method method) {
+        final BooleanInjector injector = generatedBoolean(target, method, "Failed to inject value into method");
+        return injector != null ? injector : new BoxingBooleanInjector(SetMethodInjector.<Boolean>create(target, method), method);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Injector<T> generated(final Value<?> target, final Member member, final String failureMessage) {
+        final Constructor<?> constructor = InjectorClassGenerator.getInjectorConstructor(member);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return new GeneratedInjector<T>((Injector<Object>) constructor.newInstance(target), member, failureMessage);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static IntInjector generatedInt(final Value<?> target, final Member member, final String failureMessage) {
+        if (injectedType(member) != int.class) {
+            return null;
+        }
+        final Constructor<?> constructor = InjectorClassGenerator.getPrimitiveInjectorConstructor(member);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return new GeneratedInjector.OfInt((IntInjector) constructor.newInstance(target), member, failureMessage);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static LongInjector generatedLong(final Value<?> target, final Member member, final String failureMessage) {
+        if (injectedType(member) != long.class) {
+            return null;
+        }
+        final Constructor<?> constructor = InjectorClassGenerator.getPrimitiveInjectorConstructor(member);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return new GeneratedInjector.OfLong((LongInjector) constructor.newInstance(target), member, failureMessage);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static BooleanInjector generatedBoolean(final Value<?> target, final Member member, final String failureMessage) {
+        if (injectedType(member) != boolean.class) {
+            return null;
+        }
+        final Constructor<?> constructor = InjectorClassGenerator.getPrimitiveInjectorConstructor(member);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return new GeneratedInjector.OfBoolean((BooleanInjector) constructor.newInstance(target), member, failureMessage);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Class<?> injectedType(final Member member) {
+        if (member instanceof Field) {
+            return ((Field) member).getType();
+        }
+        final Class<?>[] parameterTypes = ((Method) member).getParameterTypes();
+        return parameterTypes.length == 1 ? parameterTypes[0] : null;
+    }
+
+    private static final class BoxingIntInjector implements IntInjector {
+        private final Injector<Integer> delegate;
+        private final Member member;
+
+        BoxingIntInjector(final Injector<Integer> delegate, final Member member) {
+            this.delegate = delegate;
+            this.member = member;
+        }
+
+        public void injectInt(final int value) throws InjectionException {
+            delegate.inject(Integer.valueOf(value));
+        }
+
+        public void inject(final Integer value) throws InjectionException {
+            delegate.inject(value);
+        }
+
+        public void uninject() {
+            if (member instanceof Field) {
+                // the field injector stores zero itself
+                delegate.uninject();
+                return;
+            }
+            // the setter injector passes null, which a primitive parameter does not accept
+            try {
+                delegate.inject(Integer.valueOf(0));
+            } catch (InjectionException e) {
+                InjectorLogger.INSTANCE.uninjectFailed(e, member);
+            }
+        }
+    }
+
+    private static final class BoxingLongInjector implements LongInjector {
+        private final Injector<Long> delegate;
+        private final Member member;
+
+        BoxingLongInjector(final Injector<Long> delegate, final Member member) {
+            this.delegate = delegate;
+            this.member = member;
+        }
+
+        public void injectLong(final long value) throws InjectionException {
+            delegate.inject(Long.valueOf(value));
+        }
+
+        public void inject(final Long value) throws InjectionException {
+            delegate.inject(value);
+        }
+
+        public void uninject() {
+            if (member instanceof Field) {
+                // the field injector stores zero itself
+                delegate.uninject();
+                return;
+            }
+            // the setter injector passes null, which a primitive parameter does not accept
+            try {
+                delegate.inject(Long.valueOf(0L));
+            } catch (InjectionException e) {
+                InjectorLogger.INSTANCE.uninjectFailed(e, member);
+            }
+        }
+    }
+
+    private static final class BoxingBooleanInjector implements BooleanInjector {
+        private final Injector<Boolean> delegate;
+        private final Member member;
+
+        BoxingBooleanInjector(final Injector<Boolean> delegate, final Member member) {
+            this.delegate = delegate;
+            this.member = member;
+        }
+
+        public void injectBoolean(final boolean value) throws InjectionException {
+            delegate.inject(Boolean.valueOf(value));
+        }
+
+        public void inject(final Boolean value) throws InjectionException {
+            delegate.inject(value);
+        }
+
+        public void uninject() {
+            if (member instanceof Field) {
+                // the field injector stores zero itself
+                delegate.uninject();
+                return;
+            }
+            // the setter injector passes null, which a primitive parameter does not accept
+            try {
+                delegate.inject(Boolean.FALSE);
+            } catch (InjectionException e) {
+                InjectorLogger.INSTANCE.uninjectFailed(e, member);
+            }
+        }
+    }
 }
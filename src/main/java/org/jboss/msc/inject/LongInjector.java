@@ -0,0 +1,41 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.inject;
+
+/**
+ * An injector for values of primitive type {@code long}.  Sources which know the injected value to be a {@code long} may call
+ * {@link #injectLong(long)} to inject it without boxing; {@link #inject(Object)} accepts the same value boxed.
+ * Injecting {@link org.jboss.msc.value.Values#immediateLongValue(long)} through
+ * {@link org.jboss.msc.service.ServiceBuilder#addInjectionValue(Injector, org.jboss.msc.value.Value) addInjectionValue}
+ * uses the unboxed path.
+ */
+public interface LongInjector extends Injector<Long> {
+
+    /**
+     * Inject the given value without boxing.
+     *
+     * @param value the value
+     * @throws InjectionException if the injection failed
+     */
+    void injectLong(long value) throws InjectionException;
+}
@@ -24,7 +24,6 @@ package org.jboss.msc.inject;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
 import org.jboss.msc.value.ImmediateValue;
 import org.jboss.msc.value.ThreadLocalValue;
@@ -33,7 +32,9 @@ import org.jboss.msc.value.Values;
 
 /**
  * An injector which invokes a method.  The value being injected can be specified by {@link Values#injectedValue()}.  The
- * value being invoked upon can be specified by {@link Values#thisValue()}.
+ * value being invoked upon can be specified by {@link Values#thisValue()}.  These contextual values are only set up
+ * for the invocation if one of the parameters is {@link Values#injectedValue()} or {@link Values#thisValue()} itself;
+ * otherwise the method is invoked directly.
  *
  * @param <T> the injection type
  *
@@ -43,7 +44,11 @@ public final class MethodInjector<T> implements Injector<T> {
     private final Method method;
     private final Value<?> injectedValue;
     private final Value<?> targetValue;
-    private final List<? extends Value<?>> parameterList;
+    private final Value<?>[] parameters;
+    // the arguments, if every parameter is an immediate value; reused for every call since reflection only reads them
+    private final Object[] constantArguments;
+    // true if a parameter is one of the thread-local contextual values, which must then be set around the invocation
+    private final boolean contextual;
 
     /**
      * Construct a new instance.
@@ -66,40 +71,71 @@ public final class MethodInjector<T> implements Injector<T> {
         if (parameterList == null) {
             throw new IllegalArgumentException("parameterList is null");
         }
-        final List<? extends Value<?>> list = new ArrayList<Value<?>>(parameterList);
-        final int size = list.size();
-        for (int i = 0; i < size; i++) {
-            final Value<?> value = list.get(i);
-            if (value == null) {
+        final Value<?>[] parameters = parameterList.toArray(new Value<?>[parameterList.size()]);
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == null) {
                 throw new IllegalArgumentException("parameter value at index " + i + " is null");
             }
         }
         this.method = method;
         this.injectedValue = injectedValue;
         this.targetValue = targetValue;
-        this.parameterList = parameterList;
+        this.parameters = parameters;
+        constantArguments = getConstantArguments(parameters);
+        contextual = isContextual(parameters);
+    }
+
+    private static boolean isContextual(final Value<?>[] parameters) {
+        final ThreadLocalValue<Object> tlsInjectedValue = Values.injectedValue();
+        final ThreadLocalValue<Object> tlsThisValue = Values.thisValue();
+        for (Value<?> parameter : parameters) {
+            if (parameter == tlsInjectedValue || parameter == tlsThisValue) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object[] getConstantArguments(final Value<?>[] parameters) {
+        for (Value<?> parameter : parameters) {
+            if (! (parameter instanceof ImmediateValue)) {
+                return null;
+            }
+        }
+        return Values.getValues(parameters);
+    }
+
+    private Object[] getArguments(final Object target, final Object injected) {
+        final Object[] constantArguments = this.constantArguments;
+        if (constantArguments != null) {
+            return constantArguments;
+        }
+        // the contextual values are set for the method itself, but the parameters which refer to them are resolved directly
+        final ThreadLocalValue<Object> tlsInjectedValue = Values.injectedValue();
+        final ThreadLocalValue<Object> tlsThisValue = Values.thisValue();
+        final Value<?>[] parameters = this.parameters;
+        final Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < arguments.length; i++) {
+            final Value<?> parameter = parameters[i];
+            arguments[i] = parameter == tlsInjectedValue ? injected : parameter == tlsThisValue ? target : parameter.getValue();
+        }
+        return arguments;
     }
 
     /** {@inheritDoc} */
     public void inject(final T value) throws InjectionException {
+        if (! contextual) {
+            invoke(targetValue.getValue(), value);
+            return;
+        }
         final ThreadLocalValue<Object> injectedValue = Values.injectedValue();
         final ThreadLocalValue<Object> tlsThisValue = Values.thisValue();
         final Value<?> thisValue = targetValue;
-        final Value<?> oldInjectedValue = injectedValue.getAndSetValue((Value<?>) new ImmediateValue<T>(value));
+        final Value<?> oldInjectedValue = injectedValue.getAndSetValue(new ImmediateValue<T>(value));
         try {
             final Value<?> oldThis = tlsThisValue.getAndSetValue(thisValue);
             try {
-                method.invoke(thisValue.getValue(), Values.getValues(parameterList));
-            } catch (InvocationTargetException e) {
-                try {
-                    throw e.getCause();
-                } catch (InjectionException e2) {
-                    throw e2;
-                } catch (Throwable throwable) {
-                    throw new InjectionException("Injection failed", e);
-                }
-            } catch (Exception e) {
-                throw new InjectionException("Injection failed", e);
+                invoke(thisValue.getValue(), value);
             } finally {
                 tlsThisValue.setValue(oldThis);
             }
@@ -108,15 +144,41 @@ public final class MethodInjector<T> implements Injector<T> {
         }
     }
 
+    private void invoke(final Object target, final Object injected) throws InjectionException {
+        try {
+            method.invoke(target, getArguments(target, injected));
+        } catch (InvocationTargetException e) {
+            try {
+                throw e.getCause();
+            } catch (InjectionException e2) {
+                throw e2;
+            } catch (Throwable throwable) {
+                throw new InjectionException("Injection failed", e);
+            }
+        } catch (Exception e) {
+            throw new InjectionException("Injection failed", e);
+        }
+    }
+
     /** {@inheritDoc} */
     public void uninject() {
+        if (! contextual) {
+            try {
+                final Object target = targetValue.getValue();
+                method.invoke(target, getArguments(target, null));
+            } catch (Throwable t) {
+                InjectorLogger.INSTANCE.uninjectFailed(t, method);
+            }
+            return;
+        }
         final ThreadLocalValue<Object> injectedValue = Values.injectedValue();
         final ThreadLocalValue<Object> thisValue = Values.thisValue();
         final Value<?> oldTarget = injectedValue.getAndSetValue(this.injectedValue);
         try {
             final Value<?> oldThis = thisValue.getAndSetValue(targetValue);
             try {
-                method.invoke(targetValue.getValue(), Values.getValues(parameterList));
+                final Object target = targetValue.getValue();
+                method.invoke(target, getArguments(target, this.injectedValue.getValue()));
             } catch (Throwable t) {
                 InjectorLogger.INSTANCE.uninjectFailed(t, method);
             } finally {
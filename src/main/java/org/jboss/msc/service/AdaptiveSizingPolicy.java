@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * A thread pool sizing policy which tracks the number of threads needed to keep the available processors busy.  The
+ * target size is derived from the measured blocking ratio {@code b} as {@code processors / (1 - b)}.  The pool grows
+ * towards the target while tasks are queued and shrinks, one thread per sample, while threads sit idle.
+ */
+public final class AdaptiveSizingPolicy implements ThreadPoolSizingPolicy {
+
+    private static final double MAX_BLOCKING_RATIO = 0.95;
+
+    private final int minSize;
+    private final int maxSize;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param minSize the minimum pool size (must be greater than zero)
+     * @param maxSize the maximum pool size (must be at least {@code minSize})
+     */
+    public AdaptiveSizingPolicy(final int minSize, final int maxSize) {
+        if (minSize < 1) {
+            throw new IllegalArgumentException("minSize must be greater than zero");
+        }
+        if (maxSize < minSize) {
+            throw new IllegalArgumentException("maxSize must be at least minSize");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Construct a new instance ranging from one thread to sixteen threads per available processor.
+     */
+    public AdaptiveSizingPolicy() {
+        this(1, Math.max(Runtime.getRuntime().availableProcessors() << 4, 2));
+    }
+
+    public int getInitialPoolSize() {
+        return clamp(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getPoolSize(final Statistics statistics) {
+        final int current = statistics.getPoolSize();
+        final double blockingRatio = Math.min(Math.max(statistics.getBlockingRatio(), 0.0), MAX_BLOCKING_RATIO);
+        final int target = (int) Math.ceil(statistics.getAvailableProcessors() / (1.0 - blockingRatio));
+        if (statistics.getQueueSize() > 0) {
+            // work is waiting: grow, but do not exceed what the processors can use
+            return clamp(Math.max(current, Math.min(target, current + statistics.getQueueSize())));
+        }
+        if (statistics.getActiveCount() < current) {
+            // idle threads: shrink gently so that a burst right after does not find the pool collapsed
+            return clamp(Math.max(current - 1, statistics.getActiveCount()));
+        }
+        return clamp(current);
+    }
+
+    private int clamp(final int size) {
+        return Math.min(Math.max(size, minSize), maxSize);
+    }
+
+    public String toString() {
+        return "adaptive sizing policy [" + minSize + ".." + maxSize + "]";
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * A service whose start and stop operations are asynchronous by nature.  Instead of completing the
+ * {@link StartContext} or {@link StopContext} directly, the implementation returns a {@link LifecycleCompletion}
+ * from {@link #startAsync(StartContext)} or {@link #stopAsync(StopContext)} and completes it whenever the underlying
+ * operation is done.  The container thread which invoked the service is released as soon as these methods return,
+ * which makes this contract suitable for services driven by non-blocking I/O.
+ * <p>
+ * If the returned completion is {@code null} or already done when the method returns, the operation is treated as
+ * synchronous, with no additional overhead.
+ *
+ * @param <T> the value type
+ */
+public abstract class AsyncService<T> implements Service<T> {
+
+    /**
+     * Begin starting the service.  The context must not be completed by this method; its
+     * {@link StartContext#asynchronous()}, {@link StartContext#complete()} and
+     * {@link StartContext#failed(StartException)} methods are driven by the returned completion instead.
+     *
+     * @param context the context which can be used to create child services or to execute tasks
+     * @return the completion of the start operation, or {@code null} if the service started synchronously
+     * @throws StartException if the service could not be started
+     */
+    protected abstract LifecycleCompletion startAsync(StartContext context) throws StartException;
+
+    /**
+     * Begin stopping the service.  A stop operation cannot fail; a failed completion is logged.
+     *
+     * @param context the context
+     * @return the completion of the stop operation, or {@code null} if the service stopped synchronously
+     */
+    protected abstract LifecycleCompletion stopAsync(StopContext context);
+
+    /** {@inheritDoc}  This implementation delegates to {@link #startAsync(StartContext)}. */
+    public final void start(final StartContext context) throws StartException {
+        final LifecycleCompletion completion = startAsync(context);
+        if (completion == null) {
+            return;
+        }
+        if (completion.isDone()) {
+            final Throwable failure = completion.getFailure();
+            if (failure != null) {
+                throw startException(failure);
+            }
+            return;
+        }
+        context.asynchronous();
+        completion.setListener(new LifecycleCompletion.Listener() {
+            public void handleDone(final Throwable failure) {
+                if (failure == null) {
+                    context.complete();
+                } else {
+                    context.failed(startException(failure));
+                }
+            }
+        });
+    }
+
+    /** {@inheritDoc}  This implementation delegates to {@link #stopAsync(StopContext)}. */
+    public final void stop(final StopContext context) {
+        final LifecycleCompletion completion = stopAsync(context);
+        if (completion == null) {
+            return;
+        }
+        if (completion.isDone()) {
+            logStopFailure(context, completion.getFailure());
+            return;
+        }
+        context.asynchronous();
+        completion.setListener(new LifecycleCompletion.Listener() {
+            public void handleDone(final Throwable failure) {
+                logStopFailure(context, failure);
+                context.complete();
+            }
+        });
+    }
+
+    private static StartException startException(final Throwable failure) {
+        return failure instanceof StartException ? (StartException) failure : new StartException(failure);
+    }
+
+    private static void logStopFailure(final StopContext context, final Throwable failure) {
+        if (failure != null) {
+            ServiceLogger.FAIL.stopFailed(failure, context.getController().getName());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A watchdog which samples the service {@code start()} and {@code stop()} invocations currently running in a
+ * container, and reports those that hold on to their thread for longer than a configured threshold.  Optionally,
+ * the container thread pool is grown by one thread for every reported task until that task returns, so that the
+ * rest of the service graph keeps progressing.
+ */
+final class BlockedTaskWatchdog implements Runnable {
+
+    private final ServiceContainerImpl container;
+    private final long thresholdNanos;
+    private final boolean expand;
+    private final Set<RunningTask> running = Collections.newSetFromMap(new ConcurrentHashMap<RunningTask, Boolean>());
+    private final ScheduledFuture<?> future;
+
+    BlockedTaskWatchdog(final ServiceContainerImpl container, final long thresholdMillis, final boolean expand) {
+        this.container = container;
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.expand = expand;
+        final long period = Math.max(thresholdMillis >> 1, 1L);
+        future = SchedulerHolder.SCHEDULER.scheduleWithFixedDelay(this, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register a lifecycle method invocation which is about to run on the current thread.
+     *
+     * @param serviceName the name of the service
+     * @param stop {@code true} if the {@code stop()} method is being called, {@code false} for {@code start()}
+     * @return the running task, which must be passed to {@link #taskFinished(RunningTask)}
+     */
+    RunningTask taskStarted(final ServiceName serviceName, final boolean stop) {
+        final RunningTask task = new RunningTask(serviceName, stop, Thread.currentThread(), System.nanoTime());
+        running.add(task);
+        return task;
+    }
+
+    /**
+     * Unregister a lifecycle method invocation once it has returned.
+     *
+     * @param task the task returned by {@link #taskStarted(ServiceName, boolean)}
+     */
+    void taskFinished(final RunningTask task) {
+        running.remove(task);
+        final boolean compensated;
+        synchronized (task) {
+            task.finished = true;
+            compensated = task.compensated;
+        }
+        if (compensated) {
+            container.getExecutor().removeCompensation();
+        }
+    }
+
+    /**
+     * Mark a task as being inside a blocking section which it has declared itself.  Such tasks are not reported.
+     *
+     * @param task the running task
+     * @return {@code true} if the caller should compensate for the blocked thread, {@code false} if the watchdog
+     *      already did
+     */
+    boolean enterManagedBlocking(final RunningTask task) {
+        synchronized (task) {
+            task.managed = true;
+            return ! task.compensated;
+        }
+    }
+
+    /**
+     * Mark a task as having left its declared blocking section.
+     *
+     * @param task the running task
+     */
+    void exitManagedBlocking(final RunningTask task) {
+        synchronized (task) {
+            task.managed = false;
+        }
+    }
+
+    /**
+     * Stop sampling; called once the container has terminated.
+     */
+    void cancel() {
+        future.cancel(false);
+    }
+
+    public void run() {
+        final long now = System.nanoTime();
+        for (RunningTask task : running) {
+            final long elapsed = now - task.startNanos;
+            if (elapsed < thresholdNanos) {
+                continue;
+            }
+            synchronized (task) {
+                if (task.finished || task.reported || task.managed) {
+                    continue;
+                }
+                task.reported = true;
+                if (expand) {
+                    container.getExecutor().addCompensation();
+                    task.compensated = true;
+                }
+            }
+            final Thread thread = task.thread;
+            final ThreadStack stack = new ThreadStack(thread);
+            stack.setStackTrace(thread.getStackTrace());
+            ServiceLogger.ROOT.blockedTask(stack, task.serviceName, task.stop ? "stop" : "start", Long.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsed)), thread.getName());
+        }
+    }
+
+    static final class RunningTask {
+        private final ServiceName serviceName;
+        private final boolean stop;
+        private final Thread thread;
+        private final long startNanos;
+        // the following are guarded by this
+        private boolean reported;
+        private boolean compensated;
+        private boolean finished;
+        private boolean managed;
+
+        RunningTask(final ServiceName serviceName, final boolean stop, final Thread thread, final long startNanos) {
+            this.serviceName = serviceName;
+            this.stop = stop;
+            this.thread = thread;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Carrier for the stack trace of a blocked thread.
+     */
+    static final class ThreadStack extends Throwable {
+
+        private static final long serialVersionUID = -6354318946547462291L;
+
+        ThreadStack(final Thread thread) {
+            super("Stack trace of thread \"" + thread.getName() + "\"");
+        }
+
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * The scheduler shared by the periodic monitoring tasks of all containers.
+     */
+    static final class SchedulerHolder {
+        static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "MSC Monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        private SchedulerHolder() {
+        }
+    }
+}
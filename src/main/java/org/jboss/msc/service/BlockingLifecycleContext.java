@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * A lifecycle context which lets the lifecycle method declare that it is about to block.  The start and stop contexts
+ * given to services by a container implement this interface; a service which may block checks for it with
+ * {@code instanceof}, so that it still works with contexts which do not.
+ */
+public interface BlockingLifecycleContext extends LifecycleContext {
+
+    /**
+     * Declare that the calling lifecycle method is about to block.  If the caller is running on a container thread,
+     * the container adds a thread to its pool until {@link #endBlocking()} is called, so that other services can keep
+     * starting and stopping in the meantime.  Calls may be nested; each call must be matched by a call to
+     * {@link #endBlocking()}, typically in a {@code finally} block.
+     * <p>
+     * This is meant for lifecycle methods which cannot avoid a short blocking operation; long-running
+     * operations should still use the {@link #asynchronous()} mechanism.
+     *
+     * @throws IllegalStateException if the lifecycle action was already completed
+     */
+    void beginBlocking() throws IllegalStateException;
+
+    /**
+     * Declare that the blocking operation announced by {@link #beginBlocking()} is over.
+     *
+     * @throws IllegalStateException if there is no matching call to {@link #beginBlocking()}
+     */
+    void endBlocking() throws IllegalStateException;
+}
@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A named group of services whose start operations are limited to a maximum number of concurrent executions.  A
+ * start task which cannot obtain a slot is parked in the group queue instead of occupying a container thread, and is
+ * submitted to the container executor once a running start of the same group completes or fails.
+ * <p>
+ * A group without a limit only exists while it has member services; once the last one is removed, the group is
+ * retired and dropped from the container, and a later use of its name creates a new group.
+ */
+final class ConcurrencyGroup {
+
+    private final String name;
+    private final ServiceContainerImpl container;
+    // all guarded by this
+    private int limit = Integer.MAX_VALUE;
+    private int running;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<Runnable>();
+    private int members;
+    private boolean retired;
+
+    ConcurrencyGroup(final String name, final ServiceContainerImpl container) {
+        this.name = name;
+        this.container = container;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Add a member service to this group.
+     *
+     * @return {@code true} if the service was added, {@code false} if the group was retired and must be looked up again
+     */
+    boolean join() {
+        synchronized (this) {
+            if (retired) {
+                return false;
+            }
+            members++;
+            return true;
+        }
+    }
+
+    /**
+     * Remove a member service from this group, retiring the group if it is left without members and without limit.
+     *
+     * @return {@code true} if the group was retired and must be dropped from the container
+     */
+    boolean leave() {
+        synchronized (this) {
+            members--;
+            if (members > 0 || limit != Integer.MAX_VALUE || running > 0 || ! waiting.isEmpty()) {
+                return false;
+            }
+            retired = true;
+            return true;
+        }
+    }
+
+    /**
+     * Try to obtain a slot for a start task.  If none is available, the task is queued and will be re-submitted
+     * once a slot is released.
+     *
+     * @param task the start task
+     * @return {@code true} if a slot was obtained and the task may proceed, {@code false} if it was queued
+     */
+    boolean acquire(final Runnable task) {
+        synchronized (this) {
+            if (running < limit) {
+                running++;
+                return true;
+            }
+            waiting.add(task);
+            return false;
+        }
+    }
+
+    /**
+     * Release a slot obtained by {@link #acquire(Runnable)}, handing it over to the next waiting task if any.
+     */
+    void release() {
+        final Runnable next;
+        synchronized (this) {
+            if (running > limit || (next = waiting.poll()) == null) {
+                running--;
+                return;
+            }
+            // the slot is handed over to the next task as is
+        }
+        dispatch(next);
+    }
+
+    /**
+     * Change the concurrency limit.  Raising the limit immediately dispatches as many waiting tasks as it allows.
+     *
+     * @param limit the new limit
+     * @return {@code true} if the limit was set, {@code false} if the group was retired and must be looked up again
+     */
+    boolean setLimit(final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be at least 1");
+        }
+        final ArrayDeque<Runnable> ready = new ArrayDeque<Runnable>();
+        synchronized (this) {
+            if (retired) {
+                return false;
+            }
+            this.limit = limit;
+            while (running < limit && ! waiting.isEmpty()) {
+                running++;
+                ready.add(waiting.poll());
+            }
+        }
+        for (Runnable task : ready) {
+            dispatch(task);
+        }
+        return true;
+    }
+
+    int getLimit() {
+        synchronized (this) {
+            return limit;
+        }
+    }
+
+    private void dispatch(final Runnable task) {
+        try {
+            container.getExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+}
@@ -173,11 +173,36 @@ public final class DelegatingServiceContainer implements ServiceContainer {
         throw new UnsupportedOperationException();
     }
 
+    /** {@inheritDoc} */
+    public ShutdownProgress getShutdownProgress() {
+        throw new UnsupportedOperationException();
+    }
+
     /** {@inheritDoc} */
     public boolean isShutdownComplete() {
         throw new UnsupportedOperationException();
     }
 
+    /** {@inheritDoc} */
+    public void setConcurrencyLimit(final String group, final int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public void setMode(final Collection<ServiceName> serviceNames, final ServiceController.Mode newMode) throws ServiceNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public int setModeByPrefix(final ServiceName prefix, final ServiceController.Mode newMode) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public ServiceEventSubscription subscribe(final ServiceEventFilter filter, final int capacity, final ServiceEventConsumer consumer) {
+        throw new UnsupportedOperationException();
+    }
+
     /** {@inheritDoc} */
     public void dumpServices() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The teardown performed for a container when the JVM is exiting in exit mode.  Only the services which are
+ * {@link ServiceController.State#UP UP} and implement {@link StopOnExit} are stopped, directly on the calling thread,
+ * in reverse dependency order: a service is stopped only after all of its running dependents and children were
+ * handled.  No controller state is changed, so no listener is notified and nothing is uninjected or unregistered.
+ * <p>
+ * Asynchronous stops are awaited until the deadline of the whole teardown; once it has passed, the services which
+ * have not completed are logged and the teardown moves on without waiting any further.
+ */
+final class ExitTeardown {
+
+    /**
+     * The deadline of the teardown when the {@code jboss.msc.shutdown.deadline} system property is not set.
+     */
+    static final long DEFAULT_DEADLINE_MILLIS = 30000L;
+
+    private final ServiceContainerImpl container;
+    private final long deadlineMillis;
+
+    ExitTeardown(final ServiceContainerImpl container, final long deadlineMillis) {
+        this.container = container;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Stop the marked services of the given controllers.
+     *
+     * @param controllers the installed controllers of the container
+     * @return the number of services which were stopped
+     */
+    int run(final Collection<ServiceControllerImpl<?>> controllers) {
+        final Map<ServiceControllerImpl<?>, Node> nodes = new IdentityHashMap<ServiceControllerImpl<?>, Node>(controllers.size());
+        for (ServiceControllerImpl<?> controller : controllers) {
+            if (controller.getSubstate() == ServiceController.Substate.UP) {
+                nodes.put(controller, new Node(controller));
+            }
+        }
+        // a running service must be stopped after its running dependents and children
+        for (Node node : nodes.values()) {
+            for (Dependency dependency : node.controller.getDependencyArray()) {
+                link(node, nodes.get(container.getService(dependency.getName())));
+            }
+            link(node, nodes.get(node.controller.getParent()));
+        }
+        final ArrayDeque<Node> ready = new ArrayDeque<Node>();
+        for (Node node : nodes.values()) {
+            if (node.pending == 0) {
+                ready.add(node);
+            }
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        int stopped = 0;
+        Node node;
+        while ((node = ready.poll()) != null) {
+            if (stop(node.controller, deadline)) {
+                stopped++;
+            }
+            for (Node next : node.next) {
+                if (--next.pending == 0) {
+                    ready.add(next);
+                }
+            }
+        }
+        return stopped;
+    }
+
+    private static void link(final Node dependent, final Node dependency) {
+        if (dependency != null) {
+            dependency.pending++;
+            dependent.next.add(dependency);
+        }
+    }
+
+    private boolean stop(final ServiceControllerImpl<?> controller, final long deadline) {
+        final Service<?> service;
+        try {
+            service = controller.getService();
+        } catch (IllegalStateException e) {
+            return false;
+        }
+        if (! (service instanceof StopOnExit)) {
+            return false;
+        }
+        final ExitStopContext context = new ExitStopContext(controller);
+        final ClassLoader contextClassLoader = ServiceControllerImpl.setTCCL(service.getClass().getClassLoader());
+        try {
+            service.stop(context);
+        } catch (Throwable t) {
+            ServiceLogger.FAIL.stopFailed(t, controller.getName());
+            return true;
+        } finally {
+            ServiceControllerImpl.setTCCL(contextClassLoader);
+        }
+        if (! context.awaitCompletion(deadline)) {
+            ServiceLogger.ROOT.exitStopTimedOut(controller.getName(), Long.valueOf(deadlineMillis));
+        }
+        return true;
+    }
+
+    private static final class Node {
+        private final ServiceControllerImpl<?> controller;
+        private final List<Node> next = new ArrayList<Node>(2);
+        private int pending;
+
+        Node(final ServiceControllerImpl<?> controller) {
+            this.controller = controller;
+        }
+    }
+
+    /**
+     * A stop context which runs everything on the exiting thread.
+     */
+    private static final class ExitStopContext implements StopContext, BlockingLifecycleContext {
+        private final ServiceControllerImpl<?> controller;
+        private final long startNanos = System.nanoTime();
+        // guarded by this
+        private boolean async;
+        private boolean done;
+
+        ExitStopContext(final ServiceControllerImpl<?> controller) {
+            this.controller = controller;
+        }
+
+        public synchronized void asynchronous() throws IllegalStateException {
+            if (async || done) {
+                throw new IllegalStateException("Lifecycle context is no longer valid");
+            }
+            async = true;
+        }
+
+        public synchronized void complete() throws IllegalStateException {
+            if (! async || done) {
+                throw new IllegalStateException("Lifecycle context is no longer valid");
+            }
+            done = true;
+            notifyAll();
+        }
+
+        public void beginBlocking() {
+        }
+
+        public void endBlocking() {
+        }
+
+        public long getElapsedTime() {
+            return System.nanoTime() - startNanos;
+        }
+
+        public ServiceController<?> getController() {
+            return controller;
+        }
+
+        public void execute(final Runnable command) {
+            final ClassLoader contextClassLoader = ServiceControllerImpl.setTCCL(command.getClass().getClassLoader());
+            try {
+                command.run();
+            } finally {
+                ServiceControllerImpl.setTCCL(contextClassLoader);
+            }
+        }
+
+        synchronized boolean awaitCompletion(final long deadline) {
+            boolean intr = false;
+            try {
+                while (async && ! done) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        intr = true;
+                    }
+                }
+                return true;
+            } finally {
+                if (intr) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.msc.service;
+
+/**
+ * A service builder which can place the service in a concurrency group.  The builders returned by a container
+ * implement this interface; callers check for it with {@code instanceof}, so that they still work with builders
+ * which do not.
+ *
+ * @param <T> the service type
+ */
+public interface GroupedServiceBuilder<T> extends ServiceBuilder<T> {
+
+    /**
+     * Set the concurrency group of this service.  The number of services of a group which may be starting at the
+     * same time is limited by {@link ServiceContainer#setConcurrencyLimit(String, int)}.
+     *
+     * @param group the concurrency group name, or {@code null} for none
+     * @return this builder
+     */
+    GroupedServiceBuilder<T> setConcurrencyGroup(String group);
+}
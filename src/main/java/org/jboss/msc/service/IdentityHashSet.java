@@ -43,6 +43,10 @@ import java.util.Set;
  * probing. With a 50% load-factor a get is expected to return in only 2 probes.
  * However, a 90% load-factor is expected to return in around 50 probes.
  *
+ * Sets created with an initial capacity of at most two keep up to two
+ * elements in fields, and only allocate their table when a third element is
+ * added; most dependent and child sets never get that far.
+ *
  * @param <E> the element type
  *
  * @author Jason T. Greene
@@ -70,10 +74,21 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
     private static final float DEFAULT_LOAD_FACTOR = 0.67f;
 
     /**
-     * The open-addressed table
+     * Up to this many elements are kept in fields until the table is needed
+     */
+    private static final int INLINE_CAPACITY = 2;
+
+    /**
+     * The open-addressed table, or {@code null} while the elements are inline
      */
     private transient Object[] table;
 
+    /**
+     * The inline elements; {@code first} is set before {@code second}
+     */
+    private transient Object first;
+    private transient Object second;
+
     /**
      * The current number of key-value pairs
      */
@@ -105,20 +120,24 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
             throw new IllegalArgumentException("Load factor must be greater than 0 and less than or equal to 1");
 
         this.loadFactor = loadFactor;
-        init(initialCapacity, loadFactor);
+        if (initialCapacity > INLINE_CAPACITY)
+            init(initialCapacity, loadFactor);
     }
 
     @SuppressWarnings("unchecked")
     public IdentityHashSet(Set<? extends E> set) {
         if (set instanceof IdentityHashSet) {
             IdentityHashSet<? extends E> fast = (IdentityHashSet<? extends E>) set;
-            table = fast.table.clone();
+            table = fast.table == null ? null : fast.table.clone();
+            first = fast.first;
+            second = fast.second;
             loadFactor = fast.loadFactor;
             size = fast.size;
             threshold = fast.threshold;
         } else {
             loadFactor = DEFAULT_LOAD_FACTOR;
-            init(set.size(), loadFactor);
+            if (set.size() > INLINE_CAPACITY)
+                init(set.size(), loadFactor);
             addAll(set);
         }
     }
@@ -137,6 +156,19 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         table = new Object[c];
     }
 
+    /**
+     * Move the inline elements into a newly allocated table.
+     */
+    private void inflate(int initialCapacity) {
+        init(Math.max(initialCapacity, INLINE_CAPACITY + 1), loadFactor);
+        if (first != null) {
+            putForCreate(first);
+            if (second != null)
+                putForCreate(second);
+        }
+        first = second = null;
+    }
+
     public IdentityHashSet(int initialCapacity) {
         this(initialCapacity, DEFAULT_LOAD_FACTOR);
     }
@@ -172,6 +204,10 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
     public boolean contains(Object entry) {
         if (entry == null) return false;
 
+        Object[] table = this.table;
+        if (table == null)
+            return entry == first || entry == second;
+
         int hash = hash(entry);
         int length = table.length;
         int index = index(hash, length);
@@ -196,6 +232,23 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         }
 
         Object[] table = this.table;
+        if (table == null) {
+            if (entry == first || entry == second)
+                return false;
+
+            if (size < INLINE_CAPACITY) {
+                modCount++;
+                if (size++ == 0)
+                    first = entry;
+                else
+                    second = entry;
+                return true;
+            }
+
+            inflate(size + 1);
+            table = this.table;
+        }
+
         int hash = hash(entry);
         int length = table.length;
         int index = index(hash, length);
@@ -252,7 +305,10 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         if (size == 0)
             return false;
 
-        if (size > threshold) {
+        if (table == null) {
+            if (this.size + size > INLINE_CAPACITY)
+                inflate(this.size + size);
+        } else if (size > threshold) {
             if (size > MAXIMUM_CAPACITY)
                 size = MAXIMUM_CAPACITY;
 
@@ -264,7 +320,7 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
 
         boolean state = false;
 
-        if (collection instanceof IdentityHashSet) {
+        if (collection instanceof IdentityHashSet && ((IdentityHashSet) collection).table != null) {
             for (E e : ((E[]) (((IdentityHashSet) collection).table)))
                 if (e != null) state |= add(e);
         } else {
@@ -279,6 +335,18 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         if (o == null) return false;
 
         Object[] table = this.table;
+        if (table == null) {
+            if (o == first) {
+                first = second;
+            } else if (o != second) {
+                return false;
+            }
+            second = null;
+            modCount++;
+            size--;
+            return true;
+        }
+
         int length = table.length;
         int hash = hash(o);
         int start = index(hash, length);
@@ -328,9 +396,11 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
 
     public void clear() {
         modCount++;
+        first = second = null;
         Object[] table = this.table;
-        for (int i = 0; i < table.length; i++)
-            table[i] = null;
+        if (table != null)
+            for (int i = 0; i < table.length; i++)
+                table[i] = null;
 
         size = 0;
     }
@@ -339,7 +409,8 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
     public IdentityHashSet<E> clone() {
         try {
             IdentityHashSet<E> clone = (IdentityHashSet<E>) super.clone();
-            clone.table = table.clone();
+            if (table != null)
+                clone.table = table.clone();
             return clone;
         } catch (CloneNotSupportedException e) {
             // should never happen
@@ -348,23 +419,80 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
     }
     
     /**
-     * Advanced method that returns a copy of the internal table. The resulting
-     * array will contain nulls at random places that must be skipped. In
-     * addition, it will not operate correctly if a null was inserted into the
-     * set. Use at your own risk....
-     * 
-     * @param dummy the input array
-     * @return an array containing elements in this set along with randomly
-     *         placed nulls,
+     * Returns a dense copy of the elements of this set, without the empty slots of the internal table.  If the set is
+     * empty, the given zero-length array itself is returned, so that empty snapshots are shared.
+     *
+     * @param empty a zero-length array of the desired component type
+     * @return the given array if the set is empty, otherwise a new array of exactly {@link #size()} elements
      */
     @SuppressWarnings({ "unchecked" })
-    public <T> T[] toScatteredArray( T[] dummy) {
-        final T[] ret = (T[]) Array.newInstance(dummy.getClass().getComponentType(), table.length);
-        System.arraycopy((T[])table, 0, ret, 0, ret.length);
-        
+    public <T> T[] toCompactArray(final T[] empty) {
+        assert empty.length == 0;
+        final int size = this.size;
+        if (size == 0) {
+            return empty;
+        }
+        final T[] ret = (T[]) Array.newInstance(empty.getClass().getComponentType(), size);
+        final Object[] table = this.table;
+        if (table == null) {
+            ret[0] = (T) first;
+            if (size == INLINE_CAPACITY)
+                ret[1] = (T) second;
+            return ret;
+        }
+        for (int i = 0, j = 0; j < size; i ++) {
+            final Object e = table[i];
+            if (e != null) {
+                ret[j++] = (T) e;
+            }
+        }
         return ret;
     }
 
+    /**
+     * A callback for {@link #forEach(Visitor, Object)}.
+     *
+     * @param <E> the element type
+     * @param <P> the parameter type
+     */
+    interface Visitor<E, P> {
+
+        /**
+         * Visit one element.
+         *
+         * @param element the element
+         * @param param the parameter given to {@code forEach()}
+         */
+        void visit(E element, P param);
+    }
+
+    /**
+     * Visit every element of this set, without allocating an iterator.  Unlike an iterator, there is no modification
+     * check: the visitor must not add to or remove from this set.
+     *
+     * @param visitor the visitor
+     * @param param the parameter to pass to the visitor
+     */
+    @SuppressWarnings({ "unchecked" })
+    public <P> void forEach(final Visitor<? super E, P> visitor, final P param) {
+        final Object[] table = this.table;
+        if (table == null) {
+            final Object second = this.second;
+            if (first != null)
+                visitor.visit((E) first, param);
+            if (second != null)
+                visitor.visit((E) second, param);
+            return;
+        }
+        for (int i = 0, remaining = size; remaining > 0; i ++) {
+            final Object e = table[i];
+            if (e != null) {
+                remaining--;
+                visitor.visit((E) e, param);
+            }
+        }
+    }
+
     /**
      * Warning: this will crap out if the set contains a {@code null}.
      *
@@ -376,7 +504,7 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
     @SuppressWarnings({ "unchecked" })
     public E[] toArray(final E[] target, final int offs, final int len) {
         assert len <= size;
-        final E[] table = (E[]) this.table;
+        final E[] table = (E[]) (this.table == null ? new Object[] { first, second } : this.table);
         E e;
         final int last = offs + len;
         for (int i = offs, j = 0; i < last; j ++) {
@@ -389,6 +517,10 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
     }
 
     public void printDebugStats() {
+        if (table == null) {
+            System.out.println(" Size:             " + size + " (inline)");
+            return;
+        }
         int optimal = 0;
         int total = 0;
         int totalSkew = 0;
@@ -424,7 +556,14 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
 
         int size = s.readInt();
 
-        init(size, loadFactor);
+        if (size > INLINE_CAPACITY) {
+            init(size, loadFactor);
+        } else {
+            for (int i = 0; i < size; i++) {
+                add((E) s.readObject());
+            }
+            return;
+        }
 
         for (int i = 0; i < size; i++) {
             putForCreate((E) s.readObject());
@@ -433,7 +572,7 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         this.size = size;
     }
 
-    private void putForCreate(E entry) {
+    private void putForCreate(Object entry) {
 
         Object[] table = this.table;
         int hash = hash(entry);
@@ -453,7 +592,7 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         s.defaultWriteObject();
         s.writeInt(size);
 
-        for (Object e : table) {
+        for (Object e : table == null ? new Object[] { first, second } : table) {
             if (e != null) {
                 s.writeObject(e);
             }
@@ -470,7 +609,8 @@ class IdentityHashSet<E> extends AbstractSet<E> implements Set<E>, Cloneable, Se
         private int expectedCount = modCount;
         private int current = -1;
         private boolean hasNext;
-        Object table[] = IdentityHashSet.this.table;
+        // inline elements are iterated from a copy, from which removal is delegated to the set
+        Object table[] = IdentityHashSet.this.table == null ? new Object[] { first, second } : IdentityHashSet.this.table;
 
         public boolean hasNext() {
             if (hasNext == true)
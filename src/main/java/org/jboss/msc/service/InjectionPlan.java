@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.IdentityHashMap;
+
+import org.jboss.msc.inject.BooleanInjector;
+import org.jboss.msc.inject.Injector;
+import org.jboss.msc.inject.IntInjector;
+import org.jboss.msc.inject.LongInjector;
+import org.jboss.msc.value.BooleanValue;
+import org.jboss.msc.value.IntValue;
+import org.jboss.msc.value.LongValue;
+import org.jboss.msc.value.Value;
+
+/**
+ * The injections of a service, prepared once when its controller is created.  Injections from the same dependency
+ * share a slot, so that each dependency value is retrieved once per start no matter how many injectors it feeds.
+ * Other sources are arbitrary values which may yield a new object on every call, so they are retrieved once per
+ * injection as before; if both the source and the target are specialized for the same primitive type, the value is
+ * passed without boxing.
+ */
+final class InjectionPlan {
+
+    private static final Object UNRESOLVED = new Object();
+
+    private static final int OTHER = -1;
+    private static final int INT = -2;
+    private static final int LONG = -3;
+    private static final int BOOLEAN = -4;
+
+    /**
+     * The plan of the services without injections, which is shared.
+     */
+    static final InjectionPlan EMPTY = new InjectionPlan(new ValueInjection<?>[0]);
+
+    private final ValueInjection<?>[] injections;
+    /**
+     * The slot of the dependency of each injection, or a negative kind if its source is not a dependency.
+     */
+    private final int[] slots;
+    private final int slotCount;
+
+    InjectionPlan(final ValueInjection<?>[] injections) {
+        this.injections = injections;
+        slots = new int[injections.length];
+        final IdentityHashMap<Value<?>, Integer> slotMap = new IdentityHashMap<Value<?>, Integer>();
+        for (int i = 0; i < injections.length; i++) {
+            final Value<?> source = injections[i].getSource();
+            if (source instanceof Dependency) {
+                Integer slot = slotMap.get(source);
+                if (slot == null) {
+                    slotMap.put(source, slot = Integer.valueOf(slotMap.size()));
+                }
+                slots[i] = slot.intValue();
+            } else {
+                slots[i] = kindOf(source, injections[i].getTarget());
+            }
+        }
+        slotCount = slotMap.size();
+    }
+
+    private static int kindOf(final Value<?> source, final Injector<?> target) {
+        if (source instanceof IntValue && target instanceof IntInjector) {
+            return INT;
+        } else if (source instanceof LongValue && target instanceof LongInjector) {
+            return LONG;
+        } else if (source instanceof BooleanValue && target instanceof BooleanInjector) {
+            return BOOLEAN;
+        } else {
+            return OTHER;
+        }
+    }
+
+    /**
+     * Perform all of the injections in order.  If one fails, it and all of the preceding ones are uninjected in
+     * reverse order, and the failure is propagated.
+     */
+    void inject() {
+        final ValueInjection<?>[] injections = this.injections;
+        final int length = injections.length;
+        if (length == 0) {
+            return;
+        }
+        final Object[] values;
+        if (slotCount == 0) {
+            values = null;
+        } else {
+            values = new Object[slotCount];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = UNRESOLVED;
+            }
+        }
+        boolean ok = false;
+        int i = 0;
+        try {
+            for (; i < length; i++) {
+                final int slot = slots[i];
+                if (slot == OTHER) {
+                    doInject(injections[i]);
+                } else if (slot == INT) {
+                    ((IntInjector) injections[i].getTarget()).injectInt(((IntValue) injections[i].getSource()).getIntValue());
+                } else if (slot == LONG) {
+                    ((LongInjector) injections[i].getTarget()).injectLong(((LongValue) injections[i].getSource()).getLongValue());
+                } else if (slot == BOOLEAN) {
+                    ((BooleanInjector) injections[i].getTarget()).injectBoolean(((BooleanValue) injections[i].getSource()).getBooleanValue());
+                } else {
+                    Object value = values[slot];
+                    if (value == UNRESOLVED) {
+                        values[slot] = value = injections[i].getSource().getValue();
+                    }
+                    doInject(injections[i], value);
+                }
+            }
+            ok = true;
+        } finally {
+            if (! ok) {
+                for (; i >= 0; i--) {
+                    injections[i].getTarget().uninject();
+                }
+            }
+        }
+    }
+
+    private static <T> void doInject(final ValueInjection<T> injection) {
+        injection.getTarget().inject(injection.getSource().getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void doInject(final ValueInjection<T> injection, final Object value) {
+        ((Injector<Object>) injection.getTarget()).inject(value);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * The eventual outcome of an asynchronous lifecycle operation started by an {@link AsyncService}.  A completion
+ * is created by the service, handed to whatever entity performs the actual work (for example an I/O completion
+ * handler), and completed exactly once by calling {@link #complete()} or {@link #failed(Throwable)}.  No container
+ * thread is held while the operation is pending.  The same type is used for start and stop operations, so a failure
+ * may be any exception; a start failure which is not a {@link StartException} is wrapped in one.
+ */
+public final class LifecycleCompletion {
+
+    // all guarded by this
+    private boolean done;
+    private Throwable failure;
+    private Listener listener;
+
+    /**
+     * Construct a new, pending instance.
+     */
+    public LifecycleCompletion() {
+    }
+
+    /**
+     * Get a completion which has already completed successfully.
+     *
+     * @return the completion
+     */
+    public static LifecycleCompletion completed() {
+        final LifecycleCompletion completion = new LifecycleCompletion();
+        completion.done = true;
+        return completion;
+    }
+
+    /**
+     * Get a completion which has already failed.
+     *
+     * @param reason the reason for the failure
+     * @return the completion
+     */
+    public static LifecycleCompletion failedWith(final Throwable reason) {
+        final LifecycleCompletion completion = new LifecycleCompletion();
+        completion.done = true;
+        completion.failure = reason == null ? nullCause() : reason;
+        return completion;
+    }
+
+    /**
+     * Complete the operation successfully.
+     *
+     * @throws IllegalStateException if this operation was already completed
+     */
+    public void complete() throws IllegalStateException {
+        finish(null);
+    }
+
+    /**
+     * Complete the operation with a failure.  Failures of stop operations are logged, as a service cannot fail to stop.
+     *
+     * @param reason the reason for the failure
+     * @throws IllegalStateException if this operation was already completed
+     */
+    public void failed(final Throwable reason) throws IllegalStateException {
+        finish(reason == null ? nullCause() : reason);
+    }
+
+    private static Throwable nullCause() {
+        return new IllegalArgumentException("Lifecycle operation failed, and additionally, a null cause was supplied");
+    }
+
+    /**
+     * Determine whether this operation has completed, successfully or not.
+     *
+     * @return {@code true} if the operation is done
+     */
+    public boolean isDone() {
+        synchronized (this) {
+            return done;
+        }
+    }
+
+    private void finish(final Throwable failure) {
+        final Listener listener;
+        synchronized (this) {
+            if (done) {
+                throw new IllegalStateException("Lifecycle operation was already completed");
+            }
+            done = true;
+            this.failure = failure;
+            listener = this.listener;
+            this.listener = null;
+        }
+        if (listener != null) {
+            listener.handleDone(failure);
+        }
+    }
+
+    /**
+     * Get the failure of an operation which is done.
+     *
+     * @return the failure, or {@code null} if the operation completed successfully
+     */
+    Throwable getFailure() {
+        synchronized (this) {
+            assert done;
+            return failure;
+        }
+    }
+
+    /**
+     * Register the listener to call once this operation is done.  If it is done already, the listener is called
+     * immediately by the calling thread.
+     *
+     * @param listener the listener
+     * @throws IllegalStateException if a listener was already registered
+     */
+    void setListener(final Listener listener) throws IllegalStateException {
+        final Throwable failure;
+        synchronized (this) {
+            if (this.listener != null) {
+                throw new IllegalStateException("Lifecycle completion is already in use");
+            }
+            if (! done) {
+                this.listener = listener;
+                return;
+            }
+            failure = this.failure;
+        }
+        listener.handleDone(failure);
+    }
+
+    interface Listener {
+        void handleDone(Throwable failure);
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable list of service listeners, each with its inheritance.  Changing a controller's listeners replaces its
+ * list with a modified copy, so the listeners to notify can be read without locking and handed to a listener task
+ * without copying.  The listeners which a child service inherits from its parent are computed once per list and
+ * shared by all of the children which do not add listeners of their own.
+ */
+final class ListenerArray {
+
+    static final ListenerArray EMPTY = new ListenerArray(new ServiceListener<?>[0], new ServiceListener.Inheritance[0]);
+
+    private final ServiceListener<?>[] listeners;
+    private final ServiceListener.Inheritance[] inheritances;
+
+    // lazily computed; races are benign since the results are equivalent
+    private ListenerArray inheritedByFirst;
+    private ListenerArray inheritedByOther;
+
+    private ListenerArray(final ServiceListener<?>[] listeners, final ServiceListener.Inheritance[] inheritances) {
+        this.listeners = listeners;
+        this.inheritances = inheritances;
+    }
+
+    /**
+     * Create a list from a listener map.
+     *
+     * @param map the listeners and their inheritance
+     * @return the list
+     */
+    static ListenerArray of(final Map<? extends ServiceListener<?>, ServiceListener.Inheritance> map) {
+        if (map.isEmpty()) {
+            return EMPTY;
+        }
+        final ServiceListener<?>[] listeners = new ServiceListener<?>[map.size()];
+        final ServiceListener.Inheritance[] inheritances = new ServiceListener.Inheritance[listeners.length];
+        int i = 0;
+        for (Map.Entry<? extends ServiceListener<?>, ServiceListener.Inheritance> entry : map.entrySet()) {
+            listeners[i] = entry.getKey();
+            inheritances[i++] = entry.getValue();
+        }
+        return new ListenerArray(listeners, inheritances);
+    }
+
+    /**
+     * Create a list from a listener map, reusing the given list if it holds exactly the same listeners.  Services
+     * installed through the same targets usually have the same listeners, which can then share a single list.
+     *
+     * @param map the listeners and their inheritance
+     * @param previous a list to reuse, or {@code null}
+     * @return the list
+     */
+    static ListenerArray of(final Map<? extends ServiceListener<?>, ServiceListener.Inheritance> map, final ListenerArray previous) {
+        if (previous != null && previous.listeners.length == map.size()) {
+            final ServiceListener<?>[] listeners = previous.listeners;
+            int i = 0;
+            while (i < listeners.length && map.get(listeners[i]) == previous.inheritances[i]) {
+                i ++;
+            }
+            if (i == listeners.length) {
+                return previous;
+            }
+        }
+        return of(map);
+    }
+
+    boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    /**
+     * Get the listeners.  The returned array is shared and must not be modified.
+     *
+     * @return the listeners
+     */
+    ServiceListener<?>[] getListeners() {
+        return listeners;
+    }
+
+    boolean contains(final ServiceListener<?> listener) {
+        return indexOf(listener) != -1;
+    }
+
+    /**
+     * Get the inheritance of the given listener.
+     *
+     * @param listener the listener
+     * @return its inheritance, or {@code null} if it is not in this list
+     */
+    ServiceListener.Inheritance getInheritance(final ServiceListener<?> listener) {
+        final int idx = indexOf(listener);
+        return idx == -1 ? null : inheritances[idx];
+    }
+
+    private int indexOf(final ServiceListener<?> listener) {
+        final ServiceListener<?>[] listeners = this.listeners;
+        for (int i = 0; i < listeners.length; i ++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get a copy of this list with the given listener added, or its inheritance replaced if it is already present.
+     *
+     * @param listener the listener
+     * @param inheritance its inheritance
+     * @return the new list, or this list if it already has the listener with the same inheritance
+     */
+    ListenerArray put(final ServiceListener<?> listener, final ServiceListener.Inheritance inheritance) {
+        final int idx = indexOf(listener);
+        if (idx != -1) {
+            if (inheritances[idx] == inheritance) {
+                return this;
+            }
+            final ServiceListener.Inheritance[] newInheritances = inheritances.clone();
+            newInheritances[idx] = inheritance;
+            return new ListenerArray(listeners, newInheritances);
+        }
+        final int length = listeners.length;
+        final ServiceListener<?>[] newListeners = Arrays.copyOf(listeners, length + 1);
+        final ServiceListener.Inheritance[] newInheritances = Arrays.copyOf(inheritances, length + 1);
+        newListeners[length] = listener;
+        newInheritances[length] = inheritance;
+        return new ListenerArray(newListeners, newInheritances);
+    }
+
+    /**
+     * Get a copy of this list with all of the entries of the given list put into it, in order.
+     *
+     * @param other the other list
+     * @return the new list, which is one of the two lists if nothing had to change
+     */
+    ListenerArray putAll(final ListenerArray other) {
+        if (isEmpty()) {
+            return other;
+        }
+        ListenerArray result = this;
+        final ServiceListener<?>[] otherListeners = other.listeners;
+        for (int i = 0; i < otherListeners.length; i ++) {
+            result = result.put(otherListeners[i], other.inheritances[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Get a copy of this list without the given listener.
+     *
+     * @param listener the listener
+     * @return the new list, or this list if it does not have the listener
+     */
+    ListenerArray remove(final ServiceListener<?> listener) {
+        final int idx = indexOf(listener);
+        if (idx == -1) {
+            return this;
+        }
+        final int length = listeners.length;
+        if (length == 1) {
+            return EMPTY;
+        }
+        final ServiceListener<?>[] newListeners = new ServiceListener<?>[length - 1];
+        final ServiceListener.Inheritance[] newInheritances = new ServiceListener.Inheritance[length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, idx);
+        System.arraycopy(listeners, idx + 1, newListeners, idx, length - idx - 1);
+        System.arraycopy(inheritances, 0, newInheritances, 0, idx);
+        System.arraycopy(inheritances, idx + 1, newInheritances, idx, length - idx - 1);
+        return new ListenerArray(newListeners, newInheritances);
+    }
+
+    /**
+     * Get the listeners which a service inherits from this list of one of its ancestors.  {@link
+     * ServiceListener.Inheritance#ALL ALL} listeners are inherited as such, while {@link
+     * ServiceListener.Inheritance#ONCE ONCE} listeners are only inherited by immediate children, and not passed on.
+     *
+     * @param first {@code true} if this is the list of the parent of the service, {@code false} for another ancestor
+     * @return the inherited listeners
+     */
+    ListenerArray getInherited(final boolean first) {
+        ListenerArray inherited = first ? inheritedByFirst : inheritedByOther;
+        if (inherited == null) {
+            inherited = EMPTY;
+            for (int i = 0; i < listeners.length; i ++) {
+                switch (inheritances[i]) {
+                    case ONCE: if (first) inherited = inherited.put(listeners[i], ServiceListener.Inheritance.NONE); break;
+                    case ALL: inherited = inherited.put(listeners[i], ServiceListener.Inheritance.ALL); break;
+                    case NONE: // fall thru!
+                    default: break;
+                }
+            }
+            if (inherited.listeners.length == listeners.length && Arrays.equals(inherited.inheritances, inheritances)) {
+                // everything is inherited unchanged
+                inherited = this;
+            }
+            if (first) {
+                inheritedByFirst = inherited;
+            } else {
+                inheritedByOther = inherited;
+            }
+        }
+        return inherited;
+    }
+
+    /**
+     * A link in the persistent chain of listeners which services pass on to all of their descendants beyond their
+     * immediate children.  A link refers to the link of the parent service, so the chain is shared by all the
+     * services of a subtree.  A link is stamped with the listener stamp of the container it was created at, and is
+     * only replaced once a listener list of that container has changed since.
+     */
+    static final class Link {
+        private final ListenerArray merged;
+        private final int stamp;
+
+        Link(final ListenerArray own, final Link up, final int stamp) {
+            merged = up == null ? own : own.putAll(up.merged);
+            this.stamp = stamp;
+        }
+
+        /**
+         * Determine whether this link is still current.
+         *
+         * @param stamp the current listener stamp of the container
+         * @return {@code true} if no listener list changed since this link was created
+         */
+        boolean isCurrent(final int stamp) {
+            return this.stamp == stamp;
+        }
+
+        /**
+         * Get the listeners passed on by the owning service and all of its ancestors.
+         *
+         * @return the listeners
+         */
+        ListenerArray getListeners() {
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The periodic task which samples a container thread pool and applies the size chosen by its
+ * {@link ThreadPoolSizingPolicy}.
+ */
+final class PoolSizer implements Runnable, ThreadPoolSizingPolicy.Statistics {
+
+    private static final long PERIOD_MILLIS = 250L;
+
+    private final ServiceContainerImpl.ContainerExecutor executor;
+    private final ThreadPoolSizingPolicy policy;
+    private final ScheduledFuture<?> future;
+    private long lastCompleted;
+    // the sample being taken
+    private int poolSize;
+    private int queueSize;
+    private int activeCount;
+    private long completedTasks;
+    private double blockingRatio;
+
+    PoolSizer(final ServiceContainerImpl.ContainerExecutor executor, final ThreadPoolSizingPolicy policy) {
+        this.executor = executor;
+        this.policy = policy;
+        future = BlockedTaskWatchdog.SchedulerHolder.SCHEDULER.scheduleWithFixedDelay(this, PERIOD_MILLIS, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop sampling; called once the container has terminated.
+     */
+    void cancel() {
+        future.cancel(false);
+    }
+
+    public void run() {
+        poolSize = executor.getBaseSize();
+        queueSize = executor.getQueue().size();
+        activeCount = executor.getActiveCount();
+        final long completed = executor.getCompletedTaskCount();
+        completedTasks = completed - lastCompleted;
+        lastCompleted = completed;
+        final long busyNanos = executor.drainBusyNanos();
+        final long cpuNanos = executor.drainCpuNanos();
+        blockingRatio = busyNanos <= 0L || cpuNanos < 0L ? 0.0 : Math.max(0.0, 1.0 - (double) cpuNanos / (double) busyNanos);
+        final int newSize;
+        try {
+            newSize = policy.getPoolSize(this);
+        } catch (Throwable t) {
+            ServiceLogger.ROOT.sizingPolicyFailed(t, policy);
+            return;
+        }
+        if (newSize != poolSize) {
+            executor.setBaseSize(Math.max(newSize, 1));
+        }
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public double getBlockingRatio() {
+        return blockingRatio;
+    }
+
+    public int getAvailableProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -60,6 +60,11 @@ import org.jboss.msc.value.Value;
  * </ul>
  * <p>
  * Note that using {@link LifecycleContext#execute(Runnable)} to execute the blocking task is also not permissible.
+ * <p>
+ * To find services which violate this rule, set the {@code jboss.msc.watchdog.threshold} system property to a number
+ * of milliseconds before creating the container.  Any start or stop which holds on to a container thread for longer
+ * than that is logged along with the stack of its thread.  If {@code jboss.msc.watchdog.expand} is also set to
+ * {@code true}, the container adds a thread for each such service until it returns.
  *
  * @param <T> the type of value that this service provides; may be {@link Void}
  *
@@ -43,16 +43,18 @@ import org.jboss.msc.value.Value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
 */
-class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
+class ServiceBuilderImpl<T> implements GroupedServiceBuilder<T> {
 
     private final ServiceControllerImpl<?> parent;
     private final ServiceTargetImpl serviceTarget;
     private final Value<? extends Service<T>> serviceValue;
     private final ServiceName serviceName;
     private ServiceController.Mode initialMode = ServiceController.Mode.ACTIVE;
+    private String concurrencyGroup;
     private final Set<ServiceName> aliases = new HashSet<ServiceName>(0);
     private final Map<ServiceName, Dependency> dependencies = new HashMap<ServiceName, Dependency>(0);
     private final Map<ServiceListener<? super T>, ServiceListener.Inheritance> listeners = new IdentityHashMap<ServiceListener<? super T>, ServiceListener.Inheritance>(0);
+    private ListenerArray inheritedListeners = ListenerArray.EMPTY;
     private final List<ValueInjection<?>> valueInjections = new ArrayList<ValueInjection<?>>(0);
     private final List<Injector<? super T>> outInjections = new ArrayList<Injector<? super T>>(0);
     private boolean installed = false;
@@ -117,6 +119,13 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
         return this;
     }
 
+    @Override
+    public ServiceBuilderImpl<T> setConcurrencyGroup(final String group) {
+        checkAlreadyInstalled();
+        concurrencyGroup = group;
+        return this;
+    }
+
     @Override
     public ServiceBuilder<T> addDependencies(final ServiceName... newDependencies) {
         return addDependencies(DependencyType.REQUIRED, newDependencies);
@@ -327,6 +336,14 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
         return listeners;
     }
 
+    void setInheritedListeners(final ListenerArray inheritedListeners) {
+        this.inheritedListeners = inheritedListeners;
+    }
+
+    ListenerArray getInheritedListeners() {
+        return inheritedListeners;
+    }
+
     List<ValueInjection<?>> getValueInjections() {
         return valueInjections;
     }
@@ -335,6 +352,10 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
         return initialMode;
     }
 
+    String getConcurrencyGroup() {
+        return concurrencyGroup;
+    }
+
     ServiceTarget getTarget() {
         return serviceTarget;
     }
@@ -23,6 +23,7 @@
 package org.jboss.msc.service;
 
 import java.io.PrintStream;
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -37,6 +38,15 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
      */
     void shutdown();
 
+    /**
+     * Get the progress of the shutdown of this container.  Services are removed in dependency order, starting
+     * with the services nothing depends on.  If the {@code jboss.msc.shutdown.deadline} system property is set to a
+     * number of milliseconds, the services still remaining after that time are logged.
+     *
+     * @return the shutdown progress, or {@code null} if shutdown has not been initiated
+     */
+    ShutdownProgress getShutdownProgress();
+
     /**
      * Determine whether the container is completely shut down.
      *
@@ -70,6 +80,59 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
      */
     void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
 
+    /**
+     * Set the maximum number of services of the given concurrency group which may be starting at the same time.
+     * Start operations beyond the limit wait, without occupying a container thread, until a running start of the
+     * same group completes or fails.  Services which are not members of the group are not affected.  Groups have
+     * no limit until one is set.  A group with a limit is kept for the lifetime of the container, so limits should
+     * only be set for a fixed set of group names; a group without a limit is dropped once it has no services left.
+     *
+     * @param group the concurrency group name
+     * @param limit the maximum number of concurrent starts, at least 1
+     * @see GroupedServiceBuilder#setConcurrencyGroup(String)
+     */
+    void setConcurrencyLimit(String group, int limit);
+
+    /**
+     * Change the mode of several services at once.  All of the mode changes are applied before any of the resulting
+     * start or stop work is dispatched, so that no service begins to change state before the others have been
+     * updated.  A service which is removed after it has been looked up, but before its mode is changed, is skipped;
+     * the modes of the other services are still changed.
+     *
+     * @param serviceNames the names of the services to change
+     * @param newMode the new mode
+     * @throws ServiceNotFoundException if one of the services is not installed; no mode is changed in this case
+     * @throws IllegalArgumentException if the mode is {@code null}, or if the container is shutting down and the mode
+     *      is not {@link ServiceController.Mode#REMOVE REMOVE}
+     * @see ServiceController#setMode(ServiceController.Mode)
+     */
+    void setMode(Collection<ServiceName> serviceNames, ServiceController.Mode newMode) throws ServiceNotFoundException;
+
+    /**
+     * Change the mode of every installed service whose name is equal to, or a child of, the given prefix, in the
+     * same way as {@link #setMode(Collection, ServiceController.Mode)}.
+     *
+     * @param prefix the service name prefix
+     * @param newMode the new mode
+     * @return the number of services whose mode was set, not counting services skipped because they were removed
+     * @throws IllegalArgumentException if the mode is {@code null}, or if the container is shutting down and the mode
+     *      is not {@link ServiceController.Mode#REMOVE REMOVE}
+     */
+    int setModeByPrefix(ServiceName prefix, ServiceController.Mode newMode);
+
+    /**
+     * Subscribe to the service events of this container.  Unlike a container-wide {@link ServiceListener}, a
+     * subscription does not add a task per service and event: the accepted events are recorded into a bounded buffer
+     * and handed to the consumer in batches.  When the buffer is full, further events are dropped and counted until the
+     * consumer catches up.
+     *
+     * @param filter the filter selecting the events to deliver
+     * @param capacity the number of events which may be buffered; rounded up to a power of two
+     * @param consumer the consumer of the events
+     * @return the subscription
+     */
+    ServiceEventSubscription subscribe(ServiceEventFilter filter, int capacity, ServiceEventConsumer consumer);
+
     /**
      * Dump a complete list of services to {@code System.out}.
      */
@@ -146,6 +209,21 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
         public static ServiceContainer create(String name, int coreSize, long keepAliveTime, TimeUnit keepAliveTimeUnit) {
             return new ServiceContainerImpl(name, coreSize, keepAliveTime, keepAliveTimeUnit);
         }
+
+        /**
+         * Create a new instance with a given name whose thread pool is sized by the given policy.
+         *
+         * @param name the name of the new container, or {@code null} to generate one
+         * @param sizingPolicy the thread pool sizing policy
+         * @return a new service container instance
+         * @see AdaptiveSizingPolicy
+         */
+        public static ServiceContainer create(String name, ThreadPoolSizingPolicy sizingPolicy) {
+            if (sizingPolicy == null) {
+                throw new IllegalArgumentException("sizingPolicy is null");
+            }
+            return new ServiceContainerImpl(name, sizingPolicy);
+        }
     }
 
     /**
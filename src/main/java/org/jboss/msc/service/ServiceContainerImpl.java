@@ -32,10 +32,12 @@ import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -49,12 +51,14 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -90,7 +94,61 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         ServiceLogger.ROOT.greeting(Version.getVersionString());
     }
 
+    private static String getSystemProperty(final String name) {
+        return AccessController.doPrivileged(new PrivilegedAction<String>() {
+            public String run() {
+                return System.getProperty(name);
+            }
+        });
+    }
+
+    /**
+     * Get a numeric system property.  A value which is not a number is logged and treated as if it were unset.
+     *
+     * @param name the property name
+     * @return the property value, or 0 if it is unset or invalid
+     */
+    static long getLongSystemProperty(final String name) {
+        final String value = getSystemProperty(name);
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            ServiceLogger.ROOT.invalidSystemProperty(value, name);
+            return 0L;
+        }
+    }
+
     private final ConcurrentMap<ServiceName, ServiceRegistrationImpl> registry = new UnlockedReadHashMap<ServiceName, ServiceRegistrationImpl>(512);
+    private final ConcurrentMap<String, ConcurrencyGroup> concurrencyGroups = new UnlockedReadHashMap<String, ConcurrencyGroup>(16);
+
+    private static final ServiceEventSubscriptionImpl[] NO_SUBSCRIPTIONS = new ServiceEventSubscriptionImpl[0];
+
+    // shared by the controllers which have no aliases, dependencies or injections
+    private static final ServiceRegistrationImpl[] NO_REGISTRATIONS = new ServiceRegistrationImpl[0];
+    private static final Dependency[] NO_DEPENDENCIES = new Dependency[0];
+    private static final ValueInjection<?>[] NO_INJECTIONS = new ValueInjection<?>[0];
+
+    /**
+     * The listener list of the last installed service, to be shared with the next one if it has the same listeners.
+     * Races are benign since the lists are immutable.
+     */
+    private ListenerArray lastListeners;
+
+    @SuppressWarnings("unused")
+    private volatile ServiceEventSubscriptionImpl[] subscriptions = NO_SUBSCRIPTIONS;
+
+    private static final AtomicReferenceFieldUpdater<ServiceContainerImpl, ServiceEventSubscriptionImpl[]> subscriptionsUpdater = AtomicReferenceFieldUpdater.newUpdater(ServiceContainerImpl.class, ServiceEventSubscriptionImpl[].class, "subscriptions");
+
+    /**
+     * Incremented whenever the inherited listeners of a service of this container change after its installation, so
+     * that the cached {@link ListenerArray.Link descendant links} are recomputed.
+     */
+    private volatile int listenerStamp;
+
+    private static final AtomicIntegerFieldUpdater<ServiceContainerImpl> listenerStampUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceContainerImpl.class, "listenerStamp");
 
     private final long start = System.nanoTime();
     private long shutdownInitiated;
@@ -109,6 +167,31 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
                         public void run() {
                             // shut down all services in all containers.
                             final Set<Reference<ServiceContainerImpl, Void>> set = containers;
+                            if (Boolean.parseBoolean(getSystemProperty("jboss.msc.journal.dumpOnExit"))) {
+                                // record what the containers were doing before we start tearing them down
+                                synchronized (set) {
+                                    for (Reference<ServiceContainerImpl, Void> containerRef : set) {
+                                        final ServiceContainerImpl container = containerRef.get();
+                                        if (container != null && container.journal != null) {
+                                            container.journal.dump(System.err, container.getName());
+                                        }
+                                    }
+                                }
+                            }
+                            if (Boolean.parseBoolean(getSystemProperty("jboss.msc.shutdown.exit"))) {
+                                // only stop what must be stopped; the process is going away anyway
+                                synchronized (set) {
+                                    down = true;
+                                    for (Reference<ServiceContainerImpl, Void> containerRef : set) {
+                                        final ServiceContainerImpl container = containerRef.get();
+                                        if (container != null) {
+                                            container.exitShutdown();
+                                        }
+                                    }
+                                    set.clear();
+                                }
+                                return;
+                            }
                             final LatchListener listener;
                             synchronized (set) {
                                 down = true;
@@ -149,8 +232,15 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
 
     private volatile boolean down = false;
 
+    private volatile ShutdownEngine shutdownEngine;
+
     private final ContainerExecutor executor;
 
+    private final BlockedTaskWatchdog watchdog;
+    private final TransitionJournal journal;
+
+    private final PoolSizer poolSizer;
+
     private final String name;
     private final MBeanServer mBeanServer;
     private final ObjectName objectName;
@@ -206,6 +296,10 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
             ServiceContainerImpl.this.dumpServices();
         }
 
+        public List<String> queryTransitionJournal() {
+            return journal == null ? Collections.<String>emptyList() : journal.getLines();
+        }
+
         public String dumpServicesToString() {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             PrintStream ps = null;
@@ -225,13 +319,30 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
     };
 
     ServiceContainerImpl(String name, int coreSize, long timeOut, TimeUnit timeOutUnit) {
+        this(name, coreSize, timeOut, timeOutUnit, null);
+    }
+
+    ServiceContainerImpl(String name, ThreadPoolSizingPolicy sizingPolicy) {
+        this(name, sizingPolicy.getInitialPoolSize(), 30L, TimeUnit.SECONDS, sizingPolicy);
+    }
+
+    private ServiceContainerImpl(String name, int coreSize, long timeOut, TimeUnit timeOutUnit, ThreadPoolSizingPolicy sizingPolicy) {
         super(null);
         final int serialNo = SERIAL.getAndIncrement();
         if (name == null) {
             name = String.format("anonymous-%d", Integer.valueOf(serialNo));
         }
         this.name = name;
-        executor = new ContainerExecutor(coreSize, coreSize, timeOut, timeOutUnit);
+        executor = new ContainerExecutor(coreSize, coreSize, timeOut, timeOutUnit, sizingPolicy != null);
+        poolSizer = sizingPolicy == null ? null : new PoolSizer(executor, sizingPolicy);
+        final long thresholdMillis = getLongSystemProperty("jboss.msc.watchdog.threshold");
+        if (thresholdMillis > 0L) {
+            watchdog = new BlockedTaskWatchdog(this, thresholdMillis, Boolean.parseBoolean(getSystemProperty("jboss.msc.watchdog.expand")));
+        } else {
+            watchdog = null;
+        }
+        final int journalEntries = (int) Math.min(getLongSystemProperty("jboss.msc.journal.size"), TransitionJournal.MAX_SIZE);
+        journal = journalEntries > 0 ? new TransitionJournal(journalEntries) : null;
         ObjectName objectName = null;
         MBeanServer mBeanServer = null;
         try {
@@ -326,7 +437,6 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
     }
 
     public void shutdown() {
-        final MultipleRemoveListener<Runnable> shutdownListener;
         synchronized(this) {
             if (down){
                 return;
@@ -334,24 +444,104 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
             down = true;
             shutdownInitiated = System.nanoTime();
         }
-        shutdownListener = MultipleRemoveListener.create(new Runnable() {
+        final ShutdownEngine shutdownEngine = new ShutdownEngine(this, new Runnable() {
             public void run() {
                 executor.shutdown();
             }
         });
-        final HashSet<ServiceControllerImpl<?>> done = new HashSet<ServiceControllerImpl<?>>();
+        this.shutdownEngine = shutdownEngine;
+        final Set<ServiceControllerImpl<?>> done = new IdentityHashSet<ServiceControllerImpl<?>>();
         for (ServiceRegistrationImpl registration : registry.values()) {
             ServiceControllerImpl<?> serviceInstance = registration.getInstance();
             if (serviceInstance != null && serviceInstance.getSubstate() != Substate.CANCELLED && done.add(serviceInstance)) {
+                shutdownEngine.enroll(serviceInstance);
+            }
+        }
+        shutdownEngine.start(getLongSystemProperty("jboss.msc.shutdown.deadline"));
+    }
+
+    public void setMode(final Collection<ServiceName> serviceNames, final ServiceController.Mode newMode) throws ServiceNotFoundException {
+        final List<ServiceControllerImpl<?>> controllers = new ArrayList<ServiceControllerImpl<?>>(serviceNames.size());
+        final Set<ServiceControllerImpl<?>> found = new IdentityHashSet<ServiceControllerImpl<?>>();
+        for (ServiceName serviceName : serviceNames) {
+            final ServiceRegistrationImpl registration = registry.get(serviceName);
+            final ServiceControllerImpl<?> controller = registration == null ? null : registration.getInstance();
+            if (controller == null) {
+                throw new ServiceNotFoundException("Service " + serviceName + " not found");
+            }
+            if (found.add(controller)) {
+                controllers.add(controller);
+            }
+        }
+        setModes(controllers, newMode);
+    }
+
+    public int setModeByPrefix(final ServiceName prefix, final ServiceController.Mode newMode) {
+        final List<ServiceControllerImpl<?>> controllers = new ArrayList<ServiceControllerImpl<?>>();
+        final Set<ServiceControllerImpl<?>> found = new IdentityHashSet<ServiceControllerImpl<?>>();
+        for (Map.Entry<ServiceName, ServiceRegistrationImpl> registryEntry : registry.entrySet()) {
+            if (prefix.isParentOf(registryEntry.getKey())) {
+                final ServiceControllerImpl<?> controller = registryEntry.getValue().getInstance();
+                if (controller != null && found.add(controller)) {
+                    controllers.add(controller);
+                }
+            }
+        }
+        return setModes(controllers, newMode);
+    }
+
+    private int setModes(final List<ServiceControllerImpl<?>> controllers, final ServiceController.Mode newMode) {
+        if (newMode == null) {
+            throw new IllegalArgumentException("newMode is null");
+        }
+        if (newMode != Mode.REMOVE && isShutdown()) {
+            throw new IllegalArgumentException("Container is shutting down");
+        }
+        // apply every mode change first, then release all of the resulting work at once
+        final ArrayList<Runnable> tasks = new ArrayList<Runnable>(controllers.size() << 1);
+        int count = 0;
+        try {
+            for (ServiceControllerImpl<?> controller : controllers) {
                 try {
-                    serviceInstance.addListener(shutdownListener);
-                } catch (IllegalArgumentException e) {
-                    continue;
+                    controller.internalSetMode(null, newMode, tasks);
+                    count++;
+                } catch (IllegalStateException e) {
+                    // the service was removed since it was looked up; skip it and carry on with the others
                 }
-                serviceInstance.setMode(Mode.REMOVE);
             }
+        } finally {
+            ServiceControllerImpl.doExecute(executor, tasks);
+        }
+        return count;
+    }
+
+    /**
+     * Tear this container down because the JVM is exiting.  Only the running services which implement
+     * {@link StopOnExit} are stopped; see {@link ExitTeardown}.
+     */
+    void exitShutdown() {
+        synchronized(this) {
+            if (down){
+                return;
+            }
+            down = true;
+            shutdownInitiated = System.nanoTime();
         }
-        shutdownListener.done();
+        final Set<ServiceControllerImpl<?>> controllers = new IdentityHashSet<ServiceControllerImpl<?>>();
+        for (ServiceRegistrationImpl registration : registry.values()) {
+            final ServiceControllerImpl<?> serviceInstance = registration.getInstance();
+            if (serviceInstance != null) {
+                controllers.add(serviceInstance);
+            }
+        }
+        final long deadline = getLongSystemProperty("jboss.msc.shutdown.deadline");
+        new ExitTeardown(this, deadline > 0L ? deadline : ExitTeardown.DEFAULT_DEADLINE_MILLIS).run(controllers);
+        executor.shutdown();
+    }
+
+    public ShutdownProgress getShutdownProgress() {
+        final ShutdownEngine shutdownEngine = this.shutdownEngine;
+        return shutdownEngine == null ? null : shutdownEngine.getProgress();
     }
 
     public boolean isShutdownComplete() {
@@ -391,6 +581,12 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
     }
 
     private synchronized void shutdownComplete(long started) {
+        if (watchdog != null) {
+            watchdog.cancel();
+        }
+        if (poolSizer != null) {
+            poolSizer.cancel();
+        }
         terminateInfo = new TerminateListener.Info(started, System.nanoTime());
         for (TerminateListener terminateListener : terminateListeners) {
             try {
@@ -413,10 +609,138 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         }
     }
 
-    Executor getExecutor() {
+    ContainerExecutor getExecutor() {
         return executor;
     }
 
+    /**
+     * Get the blocked task watchdog of this container.
+     *
+     * @return the watchdog, or {@code null} if blocked task detection is disabled
+     */
+    BlockedTaskWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    TransitionJournal getJournal() {
+        return journal;
+    }
+
+    public void setConcurrencyLimit(final String group, final int limit) {
+        if (group == null) {
+            throw new IllegalArgumentException("group is null");
+        }
+        ConcurrencyGroup concurrencyGroup;
+        while (! (concurrencyGroup = getConcurrencyGroup(group)).setLimit(limit)) {
+            concurrencyGroups.remove(group, concurrencyGroup);
+        }
+    }
+
+    public ServiceEventSubscription subscribe(final ServiceEventFilter filter, final int capacity, final ServiceEventConsumer consumer) {
+        if (filter == null) {
+            throw new IllegalArgumentException("filter is null");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer is null");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        final ServiceEventSubscriptionImpl subscription = new ServiceEventSubscriptionImpl(this, filter, capacity, consumer);
+        ServiceEventSubscriptionImpl[] oldVal, newVal;
+        do {
+            oldVal = subscriptions;
+            newVal = Arrays.copyOf(oldVal, oldVal.length + 1);
+            newVal[oldVal.length] = subscription;
+        } while (! subscriptionsUpdater.compareAndSet(this, oldVal, newVal));
+        return subscription;
+    }
+
+    void removeSubscription(final ServiceEventSubscriptionImpl subscription) {
+        ServiceEventSubscriptionImpl[] oldVal, newVal;
+        do {
+            oldVal = subscriptions;
+            final int idx = Arrays.asList(oldVal).indexOf(subscription);
+            if (idx == -1) {
+                return;
+            }
+            newVal = new ServiceEventSubscriptionImpl[oldVal.length - 1];
+            System.arraycopy(oldVal, 0, newVal, 0, idx);
+            System.arraycopy(oldVal, idx + 1, newVal, idx, newVal.length - idx);
+        } while (! subscriptionsUpdater.compareAndSet(this, oldVal, newVal));
+    }
+
+    /**
+     * Record a service event with every subscription whose filter accepts it.  Called under the controller lock.
+     *
+     * @param controller the controller the event occurred on
+     * @param kind the event kind
+     * @param transition the transition, or {@code null} if the event is not a transition
+     */
+    void recordEvent(final ServiceControllerImpl<?> controller, final ServiceEvent.Kind kind, final ServiceController.Transition transition) {
+        final ServiceEventSubscriptionImpl[] subscriptions = this.subscriptions;
+        if (subscriptions.length == 0) {
+            return;
+        }
+        final ServiceName serviceName = controller.getName();
+        ServiceEvent event = null;
+        for (ServiceEventSubscriptionImpl subscription : subscriptions) {
+            if (subscription.getFilter().accepts(serviceName, kind, transition)) {
+                if (event == null) {
+                    event = new ServiceEvent(controller, kind, transition, System.nanoTime());
+                }
+                subscription.record(event);
+            }
+        }
+    }
+
+    /**
+     * Join the concurrency group with the given name on behalf of a new service, creating it if necessary.
+     *
+     * @param name the group name
+     * @return the joined concurrency group
+     */
+    ConcurrencyGroup joinConcurrencyGroup(final String name) {
+        ConcurrencyGroup group;
+        while (! (group = getConcurrencyGroup(name)).join()) {
+            // retired concurrently; make sure it is gone before looking again
+            concurrencyGroups.remove(name, group);
+        }
+        return group;
+    }
+
+    /**
+     * Leave a concurrency group on behalf of a removed service, dropping the group if it is retired.
+     *
+     * @param group the concurrency group
+     */
+    void leaveConcurrencyGroup(final ConcurrencyGroup group) {
+        if (group.leave()) {
+            concurrencyGroups.remove(group.getName(), group);
+        }
+    }
+
+    int getConcurrencyGroupCount() {
+        return concurrencyGroups.size();
+    }
+
+    /**
+     * Get the concurrency group with the given name, creating it with no limit if it does not exist.
+     *
+     * @param name the group name
+     * @return the concurrency group
+     */
+    private ConcurrencyGroup getConcurrencyGroup(final String name) {
+        ConcurrencyGroup group = concurrencyGroups.get(name);
+        if (group == null) {
+            final ConcurrencyGroup appearing = concurrencyGroups.putIfAbsent(name, group = new ConcurrencyGroup(name, this));
+            if (appearing != null) {
+                group = appearing;
+            }
+        }
+        return group;
+    }
+
     /**
      * Atomically get or create a registration.
      *
@@ -466,30 +790,22 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         return result;
     }
 
-    void apply(ServiceBuilderImpl<?> builder, ServiceControllerImpl<?> parent, boolean first) {
-        final ServiceControllerImpl<?> parentParent;
-        synchronized (parent) {
-            // this ugly hack is sadly necessary.  Only ServiceListener<Object>s can be inherited, but Java doesn't know that.  So just do it the quick & dirty way!
-            @SuppressWarnings("unchecked")
-            final Map<ServiceListener<Object>, ServiceListener.Inheritance> genericListeners = (Map<ServiceListener<Object>, ServiceListener.Inheritance>) (Map) parent.getListeners();
-            final List<ServiceListener<Object>> inherited = new ArrayList<ServiceListener<Object>>(4);
-            final List<ServiceListener<Object>> once = first ? new ArrayList<ServiceListener<Object>>(4) : null;
-            for (ServiceListener<Object> listener : genericListeners.keySet()) {
-                final ServiceListener.Inheritance inheritance = genericListeners.get(listener);
-                switch (inheritance) {
-                    case ONCE: if (first) once.add(listener); break;
-                    case ALL: inherited.add(listener); break;
-                    case NONE: // fall thru!
-                    default: break;
-                }
-            }
-            if (first) builder.addListenerNoCheck(ServiceListener.Inheritance.NONE, once);
-            builder.addListenerNoCheck(ServiceListener.Inheritance.ALL, inherited);
-            parentParent = parent.getParent();
-        }
+    int getListenerStamp() {
+        return listenerStamp;
+    }
+
+    void listenersChanged() {
+        listenerStampUpdater.incrementAndGet(this);
+    }
+
+    void apply(ServiceBuilderImpl<?> builder, ServiceControllerImpl<?> parent) {
+        // the listener lists are immutable, so no lock is needed; the chain of further ancestors is shared by siblings
+        ListenerArray inherited = parent.getListenerList().getInherited(true);
+        final ServiceControllerImpl<?> parentParent = parent.getParent();
         if (parentParent != null) {
-            apply(builder, parentParent, false);
+            inherited = inherited.putAll(parentParent.getDescendantLink().getListeners());
         }
+        builder.setInheritedListeners(inherited);
     }
 
     void apply(ServiceBuilderImpl<?> builder) {
@@ -498,10 +814,18 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         // Now apply inherited listeners from the parent
         final ServiceControllerImpl<?> parent = builder.getParent();
         if (parent != null) {
-            apply(builder, parent, true);
+            apply(builder, parent);
         }
     }
 
+    private ListenerArray getListenerArray(final Map<? extends ServiceListener<?>, ServiceListener.Inheritance> listeners) {
+        final ListenerArray listenerArray = ListenerArray.of(listeners, lastListeners);
+        if (! listenerArray.isEmpty()) {
+            lastListeners = listenerArray;
+        }
+        return listenerArray;
+    }
+
     @Override
     <T> ServiceController<T> install(final ServiceBuilderImpl<T> serviceBuilder) throws DuplicateServiceException {
         if (down) {
@@ -516,7 +840,7 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
 
         // Create registrations
         final ServiceRegistrationImpl primaryRegistration = getOrCreateRegistration(name);
-        final ServiceRegistrationImpl[] aliasRegistrations = new ServiceRegistrationImpl[aliasCount];
+        final ServiceRegistrationImpl[] aliasRegistrations = aliasCount == 0 ? NO_REGISTRATIONS : new ServiceRegistrationImpl[aliasCount];
 
         for (int i = 0; i < aliasCount; i++) {
             aliasRegistrations[i] = getOrCreateRegistration(aliases[i]);
@@ -525,7 +849,7 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         // Create the list of dependencies
         final Map<ServiceName, ServiceBuilderImpl.Dependency> dependencyMap = serviceBuilder.getDependencies();
         final int dependencyCount = dependencyMap.size();
-        final Dependency[] dependencies = new Dependency[dependencyCount];
+        final Dependency[] dependencies = dependencyCount == 0 ? NO_DEPENDENCIES : new Dependency[dependencyCount];
         final List<ValueInjection<?>> valueInjections = serviceBuilder.getValueInjections();
         final List<ValueInjection<?>> outInjections = new ArrayList<ValueInjection<?>>();
         // set up outInjections with an InjectedValue
@@ -547,13 +871,14 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
                 valueInjections.add(new ValueInjection<Object>(registration, injector));
             }
         }
-        final ValueInjection<?>[] valueInjectionArray = valueInjections.toArray(new ValueInjection<?>[valueInjections.size()]);
-        final ValueInjection<?>[] outInjectionArray = outInjections.toArray(new ValueInjection<?>[outInjections.size()]);
+        final ValueInjection<?>[] valueInjectionArray = valueInjections.isEmpty() ? NO_INJECTIONS : valueInjections.toArray(new ValueInjection<?>[valueInjections.size()]);
+        final ValueInjection<?>[] outInjectionArray = outInjections.isEmpty() ? NO_INJECTIONS : outInjections.toArray(new ValueInjection<?>[outInjections.size()]);
 
         // Next create the actual controller
         final ServiceControllerImpl<T> instance = new ServiceControllerImpl<T>(serviceBuilder.getServiceValue(),
                 dependencies, valueInjectionArray, outInjectionArray, primaryRegistration, aliasRegistrations,
-                serviceBuilder.getListeners(), serviceBuilder.getParent());
+                getListenerArray(serviceBuilder.getListeners()).putAll(serviceBuilder.getInheritedListeners()), serviceBuilder.getParent(),
+                serviceBuilder.getConcurrencyGroup() == null ? null : joinConcurrencyGroup(serviceBuilder.getConcurrencyGroup()));
         boolean ok = false;
         try {
             serviceValue.setValue(instance);
@@ -577,32 +902,45 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
      * @throws CircularDependencyException if a dependency cycle involving {@code instance} is detected
      */
     private <T> void detectCircularity(ServiceControllerImpl<T> instance) throws CircularDependencyException {
-        final Set<ServiceControllerImpl<?>> visited = new IdentityHashSet<ServiceControllerImpl<?>>();
-        final Deque<ServiceName> visitStack = new ArrayDeque<ServiceName>();
+        final CycleDetector detector = new CycleDetector();
         final ServiceRegistrationImpl reg = instance.getPrimaryRegistration();
         IdentityHashSet<Dependent> dependents = null;
         synchronized (reg) {
-            visitStack.push(instance.getName());
+            detector.visitStack.push(instance.getName());
             dependents = reg.getDependents();
-            synchronized (dependents) {
-                detectCircularity(reg.getDependents(), instance, visited, visitStack);
+            if (dependents != null) {
+                synchronized (dependents) {
+                    dependents.forEach(detector, instance);
+                }
             }
             synchronized (instance) {
-                detectCircularity(instance.getChildren(), instance, visited, visitStack);
+                final IdentityHashSet<ServiceControllerImpl<?>> children = instance.getChildren();
+                if (children != null) {
+                    children.forEach(detector, instance);
+                }
             }
         }
         for (ServiceRegistrationImpl alias: instance.getAliasRegistrations()) {
             synchronized (alias) {
                 dependents = alias.getDependents();
-                synchronized (dependents) {
-                    detectCircularity(dependents, instance, visited, visitStack);
+                if (dependents != null) {
+                    synchronized (dependents) {
+                        dependents.forEach(detector, instance);
+                    }
                 }
             }
         }
     }
 
-    private void detectCircularity(IdentityHashSet<? extends Dependent> dependents, ServiceControllerImpl<?> instance, Set<ServiceControllerImpl<?>> visited,  Deque<ServiceName> visitStack) {
-        for (Dependent dependent: dependents) {
+    /**
+     * Visitor of the dependents of the service being installed, and transitively of their own dependents, which
+     * throws a {@link CircularDependencyException} if it comes back to that service.
+     */
+    private final class CycleDetector implements IdentityHashSet.Visitor<Dependent, ServiceControllerImpl<?>> {
+        private final Set<ServiceControllerImpl<?>> visited = new IdentityHashSet<ServiceControllerImpl<?>>();
+        private final Deque<ServiceName> visitStack = new ArrayDeque<ServiceName>();
+
+        public void visit(final Dependent dependent, final ServiceControllerImpl<?> instance) {
             final ServiceControllerImpl<?> controller = dependent.getController();
             if (controller == instance) {
                 // change cycle from dependent order to dependency order
@@ -619,29 +957,36 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
             if (visited.add(controller)) {
                 synchronized (controller) {
                     if (controller.getSubstateLocked() == Substate.CANCELLED) {
-                        continue;
+                        return;
                     }
                 }
                 ServiceRegistrationImpl reg = controller.getPrimaryRegistration();
                 synchronized(reg) {
                     // concurrent removal, skip this one entirely
                     if (reg.getInstance() == null) {
-                        continue;
+                        return;
                     }
                     visitStack.push(controller.getName());
-                    IdentityHashSet<? extends Dependent> controllerDependents = reg.getDependents();
-                    synchronized(controllerDependents) {
-                        detectCircularity(reg.getDependents(), instance, visited, visitStack);
+                    IdentityHashSet<Dependent> controllerDependents = reg.getDependents();
+                    if (controllerDependents != null) {
+                        synchronized(controllerDependents) {
+                            controllerDependents.forEach(this, instance);
+                        }
                     }
                     synchronized(controller) {
-                        detectCircularity(controller.getChildren(), instance, visited, visitStack);
+                        final IdentityHashSet<ServiceControllerImpl<?>> children = controller.getChildren();
+                        if (children != null) {
+                            children.forEach(this, instance);
+                        }
                     }
                 }
                 for (ServiceRegistrationImpl alias: controller.getAliasRegistrations()) {
                     synchronized (alias) {
-                        IdentityHashSet<? extends Dependent> controllerDependents = alias.getDependents();
-                        synchronized (controllerDependents) {
-                            detectCircularity(controllerDependents, instance, visited, visitStack);
+                        IdentityHashSet<Dependent> controllerDependents = alias.getDependents();
+                        if (controllerDependents != null) {
+                            synchronized (controllerDependents) {
+                                controllerDependents.forEach(this, instance);
+                            }
                         }
                     }
                 }
@@ -657,9 +1002,13 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         }
     };
     private static final ThreadPoolExecutor.CallerRunsPolicy POLICY = new ThreadPoolExecutor.CallerRunsPolicy();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
 
     static class ServiceThread extends Thread {
         private final ServiceContainerImpl container;
+        // the wall clock and CPU time at which the current task started, if measured
+        private long taskStartNanos;
+        private long taskStartCpuNanos;
 
         ServiceThread(final Runnable runnable, final ServiceContainerImpl container) {
             super(runnable);
@@ -669,11 +1018,41 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
         ServiceContainerImpl getContainer() {
             return container;
         }
+
+        /**
+         * Determine whether the current thread is a thread of the given container.
+         *
+         * @param container the container
+         * @return {@code true} if the current thread belongs to {@code container}
+         */
+        static boolean isCurrentThreadOf(final ServiceContainerImpl container) {
+            final Thread thread = Thread.currentThread();
+            return thread instanceof ServiceThread && ((ServiceThread) thread).container == container;
+        }
     }
 
     final class ContainerExecutor extends ThreadPoolExecutor {
 
-        ContainerExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit) {
+        /**
+         * The pool size requested by the sizing policy, not counting compensation threads.
+         */
+        private int baseSize;
+        /**
+         * The number of extra threads currently granted to compensate for blocked tasks.
+         */
+        private int compensation;
+        /**
+         * Whether the wall clock and CPU time of tasks are measured for the sizing policy.
+         */
+        private final boolean measure;
+        /**
+         * Whether the CPU time of tasks is measured as well; checked once, since the query throws where unsupported.
+         */
+        private final boolean measureCpu;
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong cpuNanos = new AtomicLong();
+
+        ContainerExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final boolean measure) {
             super(corePoolSize, maximumPoolSize, keepAliveTime, unit, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
                 private final int id = executorSeq.getAndIncrement();
                 private final AtomicInteger threadSeq = new AtomicInteger(1);
@@ -684,10 +1063,88 @@ final class ServiceContainerImpl extends ServiceTargetImpl implements ServiceCon
                     return thread;
                 }
             }, POLICY);
+            baseSize = corePoolSize;
+            this.measure = measure;
+            measureCpu = measure && THREADS.isCurrentThreadCpuTimeSupported();
+        }
+
+        synchronized int getBaseSize() {
+            return baseSize;
+        }
+
+        /**
+         * Change the pool size requested by the sizing policy.  Compensation threads are kept on top of it.
+         *
+         * @param newBaseSize the new size
+         */
+        synchronized void setBaseSize(final int newBaseSize) {
+            final int oldSize = baseSize + compensation;
+            baseSize = newBaseSize;
+            final int size = newBaseSize + compensation;
+            // the core size must never exceed the maximum size
+            if (size > oldSize) {
+                setMaximumPoolSize(size);
+                setCorePoolSize(size);
+            } else {
+                setCorePoolSize(size);
+                setMaximumPoolSize(size);
+            }
+        }
+
+        long drainBusyNanos() {
+            return busyNanos.getAndSet(0L);
+        }
+
+        /**
+         * Get and reset the CPU time consumed by tasks since the last call.
+         *
+         * @return the CPU time in nanoseconds, or -1 if it cannot be measured
+         */
+        long drainCpuNanos() {
+            return measureCpu && THREADS.isThreadCpuTimeEnabled() ? cpuNanos.getAndSet(0L) : -1L;
+        }
+
+        protected void beforeExecute(final Thread t, final Runnable r) {
+            super.beforeExecute(t, r);
+            if (measure && t instanceof ServiceThread) {
+                final ServiceThread thread = (ServiceThread) t;
+                thread.taskStartNanos = System.nanoTime();
+                // -1 if CPU time measurement is disabled
+                thread.taskStartCpuNanos = measureCpu ? THREADS.getCurrentThreadCpuTime() : -1L;
+            }
+        }
+
+        /**
+         * Grow the pool by one thread, to stand in for a thread which is blocked.
+         */
+        synchronized void addCompensation() {
+            final int size = baseSize + ++compensation;
+            setMaximumPoolSize(size);
+            setCorePoolSize(size);
+        }
+
+        /**
+         * Withdraw a thread previously granted by {@link #addCompensation()}.  The extra thread terminates once idle.
+         */
+        synchronized void removeCompensation() {
+            final int size = baseSize + --compensation;
+            setCorePoolSize(size);
+            setMaximumPoolSize(size);
         }
 
         protected void afterExecute(final Runnable r, final Throwable t) {
             super.afterExecute(r, t);
+            final Thread current = Thread.currentThread();
+            if (measure && current instanceof ServiceThread) {
+                final ServiceThread thread = (ServiceThread) current;
+                busyNanos.addAndGet(System.nanoTime() - thread.taskStartNanos);
+                if (thread.taskStartCpuNanos != -1L) {
+                    final long cpuTime = THREADS.getCurrentThreadCpuTime();
+                    if (cpuTime != -1L) {
+                        cpuNanos.addAndGet(cpuTime - thread.taskStartCpuNanos);
+                    }
+                }
+            }
             if (t != null) {
                 HANDLER.uncaughtException(Thread.currentThread(), t);
             }
@@ -29,7 +29,6 @@ import java.io.Writer;
 import java.security.AccessController;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
@@ -62,14 +61,22 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
      * The injections of this service.
      */
     private final ValueInjection<?>[] injections;
+    /**
+     * The injections of this service, grouped by dependency.
+     */
+    private final InjectionPlan injectionPlan;
     /**
      * The out injections of this service.
      */
     private final ValueInjection<?>[] outInjections;
     /**
-     * The set of registered service listeners.
+     * The registered service listeners.  Replaced under lock, read without it.
      */
-    private final IdentityHashMap<ServiceListener<? super S>, ServiceListener.Inheritance> listeners;
+    private volatile ListenerArray listeners;
+    /**
+     * The last computed link of the chain of listeners inherited by the descendants of this service.
+     */
+    private volatile ListenerArray.Link descendantLink;
     /**
      * The primary registration of this service.
      */
@@ -83,13 +90,19 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
      */
     private final ServiceControllerImpl<?> parent;
     /**
-     * The children of this service (only valid during {@link State#UP}).
+     * The concurrency group limiting the start of this service, or {@code null} if there is none.
      */
-    private final IdentityHashSet<ServiceControllerImpl<?>> children;
+    private final ConcurrencyGroup concurrencyGroup;
     /**
-     * The immediate unavailable dependencies of this service.
+     * The children of this service (only valid during {@link State#UP}), or {@code null} if there are none.  Most
+     * services never have children, so the set is only allocated for the first one, and dropped with the last one.
      */
-    private final IdentityHashSet<ServiceName> immediateUnavailableDependencies;
+    private IdentityHashSet<ServiceControllerImpl<?>> children;
+    /**
+     * The immediate unavailable dependencies of this service, or {@code null} if there are none, allocated and
+     * dropped in the same way as {@link #children}.
+     */
+    private IdentityHashSet<ServiceName> immediateUnavailableDependencies;
     /**
      * The start exception.
      */
@@ -173,25 +186,31 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
      */
     @SuppressWarnings("VolatileLongOrDoubleField")
     private volatile long lifecycleTime;
+    /**
+     * The most recently issued notice of each pair of opposite notifications, indexed by
+     * {@link ListenerNotification#pair}, or {@code null} if none was issued yet.
+     */
+    private Notice[] notices;
 
     private static final Dependent[] NO_DEPENDENTS = new Dependent[0];
     private static final ServiceControllerImpl<?>[] NO_CONTROLLERS = new ServiceControllerImpl<?>[0];
+    private static final Dependent[][] NO_DEPENDENT_ARRAYS = new Dependent[][] { NO_DEPENDENTS, NO_DEPENDENTS };
     private static final String[] NO_STRINGS = new String[0];
 
-    ServiceControllerImpl(final Value<? extends Service<S>> serviceValue, final Dependency[] dependencies, final ValueInjection<?>[] injections, final ValueInjection<?>[] outInjections, final ServiceRegistrationImpl primaryRegistration, final ServiceRegistrationImpl[] aliasRegistrations, final Map<? extends ServiceListener<? super S>, ServiceListener.Inheritance> listeners, final ServiceControllerImpl<?> parent) {
+    ServiceControllerImpl(final Value<? extends Service<S>> serviceValue, final Dependency[] dependencies, final ValueInjection<?>[] injections, final ValueInjection<?>[] outInjections, final ServiceRegistrationImpl primaryRegistration, final ServiceRegistrationImpl[] aliasRegistrations, final ListenerArray listeners, final ServiceControllerImpl<?> parent, final ConcurrencyGroup concurrencyGroup) {
         this.serviceValue = serviceValue;
         this.dependencies = dependencies;
         this.injections = injections;
+        injectionPlan = injections.length == 0 ? InjectionPlan.EMPTY : new InjectionPlan(injections);
         this.outInjections = outInjections;
         this.primaryRegistration = primaryRegistration;
         this.aliasRegistrations = aliasRegistrations;
-        this.listeners = new IdentityHashMap<ServiceListener<? super S>, ServiceListener.Inheritance>(listeners);
+        this.listeners = listeners;
         this.parent = parent;
+        this.concurrencyGroup = concurrencyGroup;
         int depCount = dependencies.length;
         upperCount = 0;
         downDependencies = parent == null? depCount : depCount + 1;
-        children = new IdentityHashSet<ServiceControllerImpl<?>>();
-        immediateUnavailableDependencies = new IdentityHashSet<ServiceName>();
     }
 
     Substate getSubstateLocked() {
@@ -258,16 +277,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             for (Map.Entry<ServiceName, Dependent[]> dependentEntry : getDependentsByDependencyName().entrySet()) {
                 ServiceName serviceName = dependentEntry.getKey();
                 for (Dependent dependent : dependentEntry.getValue()) {
-                    if (dependent != null) dependent.immediateDependencyAvailable(serviceName);
+                    dependent.immediateDependencyAvailable(serviceName);
                 }
             }
             Dependent[][] dependents = getDependents();
-            if (!immediateUnavailableDependencies.isEmpty() || transitiveUnavailableDepCount > 0) {
+            if (immediateUnavailableDependencies != null || transitiveUnavailableDepCount > 0) {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) {
-                            dependent.transitiveDependencyUnavailable();
-                        }
+                        dependent.transitiveDependencyUnavailable();
                     }
                 }
             }
@@ -386,7 +403,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     if (mode == Mode.PASSIVE && downDependencies > 0) {
                         return Transition.START_REQUESTED_to_DOWN;
                     }
-                    if (!immediateUnavailableDependencies.isEmpty() || transitiveUnavailableDepCount > 0 || failCount > 0) {
+                    if (immediateUnavailableDependencies != null || transitiveUnavailableDepCount > 0 || failCount > 0) {
                         return Transition.START_REQUESTED_to_PROBLEM;
                     }
                     else if (downDependencies == 0) {
@@ -398,7 +415,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 break;
             }
             case PROBLEM: {
-                if (upperCount == 0 || (immediateUnavailableDependencies.isEmpty() && transitiveUnavailableDepCount == 0 && failCount == 0) || mode == Mode.PASSIVE) {
+                if (upperCount == 0 || (immediateUnavailableDependencies == null && transitiveUnavailableDepCount == 0 && failCount == 0) || mode == Mode.PASSIVE) {
                     return Transition.PROBLEM_to_START_REQUESTED;
                 }
                 break;
@@ -428,6 +445,8 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
      */
     void transition(final ArrayList<Runnable> tasks) {
         assert holdsLock(this);
+        final int offset = tasks.size();
+        final TransitionJournal journal = primaryRegistration.getContainer().getJournal();
         Transition transition = null;
         do {
             if (asyncTasks != 0) {
@@ -509,7 +528,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     break;
                 }
                 case START_REQUESTED_to_PROBLEM: {
-                    if (!immediateUnavailableDependencies.isEmpty()) {
+                    if (immediateUnavailableDependencies != null) {
                         getListenerTasks(ListenerNotification.IMMEDIATE_DEPENDENCY_UNAVAILABLE, tasks);
                     }
                     if (transitiveUnavailableDepCount > 0) {
@@ -587,10 +606,10 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     tasks.add(new ServiceUnavailableTask());
                     Dependent[][] dependents = getDependents();
                     // Clear all dependency uninstalled flags from dependents
-                    if (!immediateUnavailableDependencies.isEmpty() || transitiveUnavailableDepCount > 0) {
+                    if (immediateUnavailableDependencies != null || transitiveUnavailableDepCount > 0) {
                         for (Dependent[] dependentArray : dependents) {
                             for (Dependent dependent : dependentArray) {
-                                if (dependent != null) dependent.transitiveDependencyAvailable();
+                                dependent.transitiveDependencyAvailable();
                             }
                         }
                     }
@@ -602,7 +621,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 }
                 case REMOVING_to_REMOVED: {
                     getListenerTasks(transition, tasks);
-                    listeners.clear();
+                    listeners = ListenerArray.EMPTY;
                     break;
                 }
                 case REMOVING_to_DOWN: {
@@ -613,7 +632,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     break;
                 }
                 case PROBLEM_to_START_REQUESTED: {
-                    if (!immediateUnavailableDependencies.isEmpty()) {
+                    if (immediateUnavailableDependencies != null) {
                         getListenerTasks(ListenerNotification.IMMEDIATE_DEPENDENCY_AVAILABLE, tasks);
                     }
                     if (transitiveUnavailableDepCount > 0) {
@@ -631,20 +650,165 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 }
             }
             state = transition.getAfter();
-        } while (tasks.isEmpty());
+            if (journal != null) {
+                journal.record(primaryRegistration.getName(), transition);
+            }
+        } while (tasks.size() == offset);
     }
 
     private void getListenerTasks(final Transition transition, final ArrayList<Runnable> tasks) {
-        final IdentityHashMap<ServiceListener<? super S>,ServiceListener.Inheritance> listeners = this.listeners;
-        for (ServiceListener<? super S> listener : listeners.keySet()) {
-            tasks.add(new ListenerTask(listener, transition));
+        primaryRegistration.getContainer().recordEvent(this, ServiceEvent.Kind.TRANSITION, transition);
+        final ServiceListener<? super S>[] listeners = getListenerArray();
+        if (listeners != null) {
+            tasks.add(new ListenerTask(listeners, transition));
         }
     }
 
     private void getListenerTasks(final ListenerNotification notification, final ArrayList<Runnable> tasks) {
-        final IdentityHashMap<ServiceListener<? super S>,ServiceListener.Inheritance> listeners = this.listeners;
-        for (ServiceListener<? super S> listener : listeners.keySet()) {
-            tasks.add(new ListenerTask(listener, notification));
+        getListenerTasks(notification, null, tasks);
+    }
+
+    private void getListenerTasks(final ListenerNotification notification, final Notice notice, final ArrayList<Runnable> tasks) {
+        if (notice == null && notification.pair >= 0) {
+            // a notification that cannot be cancelled any longer was issued
+            resetNotice(notification.pair);
+        }
+        recordEvent(notification);
+        final ServiceListener<? super S>[] listeners = getListenerArray();
+        if (listeners != null) {
+            tasks.add(new ListenerTask(listeners, notification, notice));
+        }
+    }
+
+    /**
+     * Record the service event of a notification for the subscriptions.  This is done for every notification which is
+     * issued, including one which cancels out the pending opposite notification, so that subscribers always see the
+     * events of a pair matched up, whether or not this service has listeners.
+     *
+     * @param notification the notification
+     */
+    private void recordEvent(final ListenerNotification notification) {
+        if (notification.kind != null) {
+            primaryRegistration.getContainer().recordEvent(this, notification.kind, null);
+        }
+    }
+
+    /**
+     * Get the current listeners of this service, all of which are notified by a single task.  The array is shared
+     * and must not be modified.
+     *
+     * @return the listeners, or {@code null} if there are none
+     */
+    @SuppressWarnings("unchecked")
+    private ServiceListener<? super S>[] getListenerArray() {
+        final ListenerArray listeners = this.listeners;
+        return listeners.isEmpty() ? null : (ServiceListener<? super S>[]) listeners.getListeners();
+    }
+
+    /**
+     * Issue a notification which may cancel out against the opposite notification of the same pair.  If the last
+     * notice of the pair is the opposite one and none of its tasks has started yet, that notice is cancelled and
+     * returned; the caller must then issue nothing, except to the dependents which were added since the cancelled
+     * notice was issued (see {@link #getAddedDependents(Notice)}).  Otherwise a new notice is registered and returned.
+     * Call under lock.
+     *
+     * @param notification the notification to issue
+     * @param dependents the dependents to notify, or {@code null} if only listeners are notified
+     * @return the new notice, or the cancelled opposite notice
+     */
+    private Notice issueNotice(final ListenerNotification notification, final Dependent[][] dependents) {
+        assert holdsLock(this);
+        final int pair = notification.pair;
+        Notice[] notices = this.notices;
+        if (notices == null) {
+            notices = this.notices = new Notice[NOTICE_PAIRS];
+        } else {
+            final Notice pending = notices[pair];
+            if (pending != null && pending.notification != notification && ! pending.begun) {
+                pending.cancelled = true;
+                notices[pair] = null;
+                return pending;
+            }
+        }
+        return notices[pair] = new Notice(notification, dependents);
+    }
+
+    private void resetNotice(final int pair) {
+        assert holdsLock(this);
+        final Notice[] notices = this.notices;
+        if (notices != null) {
+            notices[pair] = null;
+        }
+    }
+
+    private void getCoalescedListenerTasks(final ListenerNotification notification, final ArrayList<Runnable> tasks) {
+        if (listeners.isEmpty()) {
+            resetNotice(notification.pair);
+            recordEvent(notification);
+            return;
+        }
+        final Notice notice = issueNotice(notification, null);
+        if (notice.cancelled) {
+            recordEvent(notification);
+        } else {
+            getListenerTasks(notification, notice, tasks);
+        }
+    }
+
+    /**
+     * Called by a task which belongs to a notice before doing its work.
+     *
+     * @param notice the notice, or {@code null} if the task cannot be cancelled
+     * @return {@code true} to run the task, {@code false} if the notice was cancelled
+     */
+    private boolean beginNotice(final Notice notice) {
+        assert !holdsLock(this);
+        if (notice == null) {
+            return true;
+        }
+        synchronized (this) {
+            if (notice.cancelled) {
+                return false;
+            }
+            notice.begun = true;
+            return true;
+        }
+    }
+
+    /**
+     * Get the current dependents which were not yet known when the given notice was issued.  Those were brought up to
+     * date when they were added, so unlike the others they still need the opposite notification.  Call under lock.
+     *
+     * @param notice the cancelled notice
+     * @return the added dependents, or {@code null} if there are none
+     */
+    private Dependent[][] getAddedDependents(final Notice notice) {
+        assert holdsLock(this);
+        final IdentityHashSet<Dependent> known = new IdentityHashSet<Dependent>();
+        for (Dependent[] dependentArray : notice.dependents) {
+            for (Dependent dependent : dependentArray) {
+                known.add(dependent);
+            }
+        }
+        ArrayList<Dependent> added = null;
+        for (Dependent[] dependentArray : getDependents()) {
+            for (Dependent dependent : dependentArray) {
+                if (! known.contains(dependent)) {
+                    if (added == null) added = new ArrayList<Dependent>();
+                    added.add(dependent);
+                }
+            }
+        }
+        return added == null ? null : new Dependent[][] { added.toArray(NO_DEPENDENTS) };
+    }
+
+    /**
+     * Release the concurrency group slot held by a start operation which has just completed or failed.
+     */
+    void releaseConcurrencySlot() {
+        assert !holdsLock(this);
+        if (concurrencyGroup != null) {
+            concurrencyGroup.release();
         }
     }
 
@@ -660,8 +824,17 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
     void doExecute(final ArrayList<Runnable> tasks) {
         assert !holdsLock(this);
+        doExecute(primaryRegistration.getContainer().getExecutor(), tasks);
+    }
+
+    /**
+     * Execute the given tasks, running any task the executor rejects in the calling thread.
+     *
+     * @param executor the executor
+     * @param tasks the tasks, or {@code null} for none
+     */
+    static void doExecute(final Executor executor, final ArrayList<Runnable> tasks) {
         if (tasks == null) return;
-        final Executor executor = primaryRegistration.getContainer().getExecutor();
         for (Runnable task : tasks) {
             try {
                 executor.execute(task);
@@ -684,6 +857,23 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             throw new IllegalArgumentException("Container is shutting down");
         }
         final ArrayList<Runnable> tasks = new ArrayList<Runnable>(4);
+        final boolean result = internalSetMode(expectedMode, newMode, tasks);
+        doExecute(tasks);
+        return result;
+    }
+
+    /**
+     * Change the mode of this service, adding the resulting tasks to the given list instead of executing them.  The
+     * tasks are accounted for, so the caller must pass them to {@link #doExecute(ArrayList)}.
+     *
+     * @param expectedMode the expected current mode, or {@code null} to change the mode unconditionally
+     * @param newMode the new mode
+     * @param tasks the list to which tasks are added
+     * @return {@code false} if the current mode did not match the expected mode
+     */
+    boolean internalSetMode(final ServiceController.Mode expectedMode, final ServiceController.Mode newMode, final ArrayList<Runnable> tasks) {
+        assert !holdsLock(this);
+        final int offset = tasks.size();
         synchronized (this) {
             final Mode oldMode = mode;
             if (expectedMode != null && expectedMode != oldMode) {
@@ -693,13 +883,12 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 return true;
             }
             internalSetMode(newMode, tasks);
-            if (tasks.isEmpty()) {
+            if (tasks.size() == offset) {
                 // if not empty, don't bother since transition should do nothing until tasks are done
                 transition(tasks);
             }
-            asyncTasks += tasks.size();
+            asyncTasks += tasks.size() - offset;
         }
-        doExecute(tasks);
         return true;
     }
 
@@ -711,13 +900,13 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 if (state.compareTo(Substate.REMOVING) >= 0) {
                     throw new IllegalStateException("Service already removed");
                 }
-                getListenerTasks(ListenerNotification.REMOVE_REQUEST_CLEARED, taskList);
+                getCoalescedListenerTasks(ListenerNotification.REMOVE_REQUEST_CLEARED, taskList);
                 // fall thru!
             }
             case NEVER: {
                 switch (newMode) {
                     case REMOVE: {
-                        getListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
+                        getCoalescedListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
                         break;
                     }
                     case ON_DEMAND:
@@ -745,7 +934,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             case ON_DEMAND: {
                 switch (newMode) {
                     case REMOVE: {
-                        getListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
+                        getCoalescedListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
                         // fall thru!
                     }
                     case NEVER: {
@@ -774,7 +963,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             case LAZY: {
                 switch (newMode) {
                     case REMOVE: {
-                        getListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
+                        getCoalescedListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
                         // fall thru!
                     }
                     case NEVER: {
@@ -809,7 +998,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             case PASSIVE: {
                 switch (newMode) {
                     case REMOVE: {
-                        getListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
+                        getCoalescedListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
                         // fall thru!
                     }
                     case NEVER: {
@@ -834,7 +1023,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             case ACTIVE: {
                 switch (newMode) {
                     case REMOVE: {
-                        getListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
+                        getCoalescedListenerTasks(ListenerNotification.REMOVE_REQUESTED, taskList);
                         // fall thru!
                     }
                     case NEVER: {
@@ -864,15 +1053,21 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     public void immediateDependencyAvailable(ServiceName dependencyName) {
         final ArrayList<Runnable> tasks;
         synchronized (this) {
-            assert immediateUnavailableDependencies.contains(dependencyName);
-            immediateUnavailableDependencies.remove(dependencyName);
-            if (!immediateUnavailableDependencies.isEmpty() || state.compareTo(Substate.CANCELLED) <= 0 || state.compareTo(Substate.REMOVING) >= 0) {
+            assert immediateUnavailableDependencies != null && immediateUnavailableDependencies.contains(dependencyName);
+            if (immediateUnavailableDependencies == null || ! immediateUnavailableDependencies.remove(dependencyName)) {
+                // not a dependency we were waiting for
+                return;
+            }
+            if (immediateUnavailableDependencies.isEmpty()) {
+                immediateUnavailableDependencies = null;
+            }
+            if (immediateUnavailableDependencies != null || state.compareTo(Substate.CANCELLED) <= 0 || state.compareTo(Substate.REMOVING) >= 0) {
                 return;
             }
             // we dropped it to 0
             tasks = new ArrayList<Runnable>(16);
             if (state == Substate.PROBLEM) {
-                getListenerTasks(ListenerNotification.IMMEDIATE_DEPENDENCY_AVAILABLE, tasks);
+                getCoalescedListenerTasks(ListenerNotification.IMMEDIATE_DEPENDENCY_AVAILABLE, tasks);
             }
             // both unavailable dep counts are 0
             if (transitiveUnavailableDepCount == 0) {
@@ -888,6 +1083,9 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     public void immediateDependencyUnavailable(ServiceName dependencyName) {
         final ArrayList<Runnable> tasks;
         synchronized (this) {
+            if (immediateUnavailableDependencies == null) {
+                immediateUnavailableDependencies = new IdentityHashSet<ServiceName>(0);
+            }
             immediateUnavailableDependencies.add(dependencyName);
             if (immediateUnavailableDependencies.size() != 1 || state.compareTo(Substate.CANCELLED) <= 0 || state.compareTo(Substate.REMOVING) >= 0) {
                 return;
@@ -895,7 +1093,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             // we raised it to 1
             tasks = new ArrayList<Runnable>(16);
             if (state == Substate.PROBLEM) {
-                getListenerTasks(ListenerNotification.IMMEDIATE_DEPENDENCY_UNAVAILABLE, tasks);
+                getCoalescedListenerTasks(ListenerNotification.IMMEDIATE_DEPENDENCY_UNAVAILABLE, tasks);
             }
             // if this is the first unavailable dependency, we need to notify dependents;
             // otherwise, they have already been notified
@@ -912,7 +1110,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         assert Thread.holdsLock(this);
         for (Dependent[] dependentArray : getDependents()) {
             for (Dependent dependent : dependentArray) {
-                if (dependent != null) dependent.transitiveDependencyUnavailable();
+                dependent.transitiveDependencyUnavailable();
             }
         }
     }
@@ -920,7 +1118,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     private void propagateTransitiveAvailability() {
         for (Dependent[] dependentArray : getDependents()) {
             for (Dependent dependent : dependentArray) {
-                if (dependent != null) dependent.transitiveDependencyAvailable();
+                dependent.transitiveDependencyAvailable();
             }
         }
     }
@@ -935,10 +1133,10 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             // we dropped it to 0
             tasks = new ArrayList<Runnable>(16);
             if (state == Substate.PROBLEM) {
-                getListenerTasks(ListenerNotification.TRANSITIVE_DEPENDENCY_AVAILABLE, tasks);
+                getCoalescedListenerTasks(ListenerNotification.TRANSITIVE_DEPENDENCY_AVAILABLE, tasks);
             }
             // there are no immediate nor transitive unavailable dependencies
-            if (immediateUnavailableDependencies.isEmpty()) {
+            if (immediateUnavailableDependencies == null) {
                 transition(tasks);
                 propagateTransitiveAvailability();
             }
@@ -957,11 +1155,11 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             // we raised it to 1
             tasks = new ArrayList<Runnable>(16);
             if (state == Substate.PROBLEM) {
-                getListenerTasks(ListenerNotification.TRANSITIVE_DEPENDENCY_UNAVAILABLE, tasks);
+                getCoalescedListenerTasks(ListenerNotification.TRANSITIVE_DEPENDENCY_UNAVAILABLE, tasks);
             }
             //if this is the first unavailable dependency, we need to notify dependents;
             // otherwise, they have already been notified
-            if (immediateUnavailableDependencies.isEmpty()) {
+            if (immediateUnavailableDependencies == null) {
                 transition(tasks);
                 propagateTransitiveUnavailability();
             }
@@ -1014,10 +1212,22 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             }
             // we raised it to 1
             tasks = new ArrayList<Runnable>();
-            if (state == Substate.PROBLEM) {
-                getListenerTasks(ListenerNotification.DEPENDENCY_FAILURE, tasks);
+            final Notice notice = issueNotice(ListenerNotification.DEPENDENCY_FAILURE, getDependents());
+            if (notice.cancelled) {
+                if (state == Substate.PROBLEM) {
+                    recordEvent(ListenerNotification.DEPENDENCY_FAILURE);
+                }
+                // the failure clear was not delivered yet; only the dependents added since need to know
+                final Dependent[][] added = getAddedDependents(notice);
+                if (added != null) {
+                    tasks.add(new DependencyFailedTask(added, false));
+                }
+            } else {
+                if (state == Substate.PROBLEM) {
+                    getListenerTasks(ListenerNotification.DEPENDENCY_FAILURE, notice, tasks);
+                }
+                tasks.add(new DependencyFailedTask(notice));
             }
-            tasks.add(new DependencyFailedTask(getDependents(), false));
             asyncTasks += tasks.size();
         }
         doExecute(tasks);
@@ -1032,10 +1242,22 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             }
             // we dropped it to 0
             tasks = new ArrayList<Runnable>();
-            if (state == Substate.PROBLEM) {
-                getListenerTasks(ListenerNotification.DEPENDENCY_FAILURE_CLEAR, tasks);
+            final Notice notice = issueNotice(ListenerNotification.DEPENDENCY_FAILURE_CLEAR, getDependents());
+            if (notice.cancelled) {
+                if (state == Substate.PROBLEM) {
+                    recordEvent(ListenerNotification.DEPENDENCY_FAILURE_CLEAR);
+                }
+                // the failure was not delivered yet; only the dependents added since need to know
+                final Dependent[][] added = getAddedDependents(notice);
+                if (added != null) {
+                    tasks.add(new DependencyRetryingTask(added));
+                }
+            } else {
+                if (state == Substate.PROBLEM) {
+                    getListenerTasks(ListenerNotification.DEPENDENCY_FAILURE_CLEAR, notice, tasks);
+                }
+                tasks.add(new DependencyRetryingTask(notice));
             }
-            tasks.add(new DependencyRetryingTask(getDependents()));
             asyncTasks += tasks.size();
         }
         doExecute(tasks);
@@ -1069,7 +1291,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             // hence, skip it to avoid duplicate notification
             dependent.dependencyFailed();
         }
-        if (!immediateUnavailableDependencies.isEmpty() || transitiveUnavailableDepCount > 0) {
+        if (immediateUnavailableDependencies != null || transitiveUnavailableDepCount > 0) {
             dependent.transitiveDependencyUnavailable();
         }
         if (state == Substate.WONT_START) {
@@ -1149,6 +1371,9 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 case STARTING:
                 case UP:
                 case STOP_REQUESTED: {
+                    if (children == null) {
+                        children = new IdentityHashSet<ServiceControllerImpl<?>>(0);
+                    }
                     children.add(child);
                     newDependent(primaryRegistration.getName(), child);
                     break;
@@ -1162,8 +1387,13 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         assert !holdsLock(this);
         final ArrayList<Runnable> tasks;
         synchronized (this) {
-            children.remove(child);
-            if (children.isEmpty()) {
+            if (children != null) {
+                children.remove(child);
+                if (children.isEmpty()) {
+                    children = null;
+                }
+            }
+            if (children == null) {
                 switch (state) {
                     case START_FAILED:
                     case STOPPING:
@@ -1182,11 +1412,58 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         doExecute(tasks);
     }
 
+    /**
+     * Determine whether this service is a leaf of the service graph, that is, whether it has neither dependents nor
+     * children.
+     *
+     * @return {@code true} if nothing depends on this service
+     */
+    boolean isLeaf() {
+        assert !holdsLock(this);
+        if (hasDependents(primaryRegistration)) {
+            return false;
+        }
+        for (ServiceRegistrationImpl aliasRegistration : aliasRegistrations) {
+            if (hasDependents(aliasRegistration)) {
+                return false;
+            }
+        }
+        synchronized (this) {
+            return children == null;
+        }
+    }
+
+    private static boolean hasDependents(final ServiceRegistrationImpl registration) {
+        synchronized (registration) {
+            final IdentityHashSet<Dependent> dependents = registration.getDependents();
+            return dependents != null && ! dependents.isEmpty();
+        }
+    }
+
+    /**
+     * Get the dependencies of this service.
+     *
+     * @return the dependencies (must not be modified)
+     */
+    Dependency[] getDependencyArray() {
+        return dependencies;
+    }
+
+    /**
+     * Get the children of this service.  Call under lock.
+     *
+     * @return the children, or {@code null} if there are none
+     */
     IdentityHashSet<ServiceControllerImpl<?>> getChildren() {
         assert holdsLock(this);
         return children;
     }
 
+    private <T> T[] getChildArray(final T[] empty) {
+        assert holdsLock(this);
+        return children == null ? empty : children.toCompactArray(empty);
+    }
+
     public ServiceControllerImpl<?> getParent() {
         return parent;
     }
@@ -1233,11 +1510,11 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             state = this.state;
             // Always run listener if removed.
             if (state != Substate.REMOVED) {
-                if (listeners.containsKey(listener)) {
+                if (listeners.contains(listener)) {
                     // Duplicates not allowed
                     throw new IllegalArgumentException("Listener " + listener + " already present on controller for " + primaryRegistration.getName());
                 }
-                listeners.put(listener, ServiceListener.Inheritance.NONE);
+                listeners = listeners.put(listener, ServiceListener.Inheritance.NONE);
                 asyncTasks ++;
             } else {
                 asyncTasks += 2;
@@ -1256,11 +1533,15 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             state = this.state;
             // Always run listener if removed.
             if (state != Substate.REMOVED) {
-                if (listeners.containsKey(listener)) {
+                if (listeners.contains(listener)) {
                     // Duplicates not allowed
                     throw new IllegalArgumentException("Listener " + listener + " already present on controller for " + primaryRegistration.getName());
                 }
-                listeners.put(listener, inheritance);
+                listeners = listeners.put(listener, inheritance);
+                // only listeners inherited by all descendants are part of the descendant links
+                if (inheritance == ServiceListener.Inheritance.ALL) {
+                    primaryRegistration.getContainer().listenersChanged();
+                }
                 asyncTasks ++;
             } else {
                 asyncTasks += 2;
@@ -1273,8 +1554,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     }
 
     public void removeListener(final ServiceListener<? super S> listener) {
+        final boolean passedOn;
         synchronized (this) {
-            listeners.remove(listener);
+            final ListenerArray listeners = this.listeners;
+            passedOn = listeners.getInheritance(listener) == ServiceListener.Inheritance.ALL;
+            this.listeners = listeners.remove(listener);
+        }
+        if (passedOn) {
+            primaryRegistration.getContainer().listenersChanged();
         }
     }
 
@@ -1304,7 +1591,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
     @Override
     public synchronized Set<ServiceName> getImmediateUnavailableDependencies() {
-        return immediateUnavailableDependencies.clone();
+        return immediateUnavailableDependencies == null ? new IdentityHashSet<ServiceName>(0) : immediateUnavailableDependencies.clone();
     }
 
     public ServiceController.Mode getMode() {
@@ -1366,38 +1653,75 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     dependencyNames,
                     failCount != 0,
                     startException != null ? startException.toString() : null,
-                    !immediateUnavailableDependencies.isEmpty() || transitiveUnavailableDepCount != 0
+                    immediateUnavailableDependencies != null || transitiveUnavailableDepCount != 0
             );
         }
     }
 
-    IdentityHashMap<ServiceListener<? super S>, ServiceListener.Inheritance> getListeners() {
+    ListenerArray getListenerList() {
         return listeners;
     }
 
+    /**
+     * Get the link of the chain of listeners inherited from this service by all of its descendants except its
+     * immediate children.  The link is reused for as long as no inherited listener of the container changes, so the
+     * parent chain is only walked again after such a change.
+     *
+     * @return the link
+     */
+    ListenerArray.Link getDescendantLink() {
+        // read the stamp before the listener lists, so that a concurrent change leaves a stale stamp behind
+        return getDescendantLink(primaryRegistration.getContainer().getListenerStamp());
+    }
+
+    private ListenerArray.Link getDescendantLink(final int stamp) {
+        ListenerArray.Link link = descendantLink;
+        if (link == null || ! link.isCurrent(stamp)) {
+            final ListenerArray.Link up = parent == null ? null : parent.getDescendantLink(stamp);
+            descendantLink = link = new ListenerArray.Link(listeners.getInherited(false), up, stamp);
+        }
+        return link;
+    }
+
     private enum ListenerNotification {
         /** Notify the listener that is has been added. */
-        LISTENER_ADDED,
+        LISTENER_ADDED(-1, null),
         /** Notifications related to the current state.  */
-        TRANSITION,
+        TRANSITION(-1, ServiceEvent.Kind.TRANSITION),
         /** Notify the listener that a dependency failure occurred. */
-        DEPENDENCY_FAILURE,
+        DEPENDENCY_FAILURE(0, ServiceEvent.Kind.DEPENDENCY_FAILURE),
         /** Notify the listener that all dependency failures are cleared. */
-        DEPENDENCY_FAILURE_CLEAR,
+        DEPENDENCY_FAILURE_CLEAR(0, ServiceEvent.Kind.DEPENDENCY_FAILURE_CLEAR),
         /** Notify the listener that an immediate dependency is unavailable. */
-        IMMEDIATE_DEPENDENCY_UNAVAILABLE,
+        IMMEDIATE_DEPENDENCY_UNAVAILABLE(1, ServiceEvent.Kind.IMMEDIATE_DEPENDENCY_UNAVAILABLE),
         /** Notify the listener that all previously unavailable immediate dependencies are now available. */
-        IMMEDIATE_DEPENDENCY_AVAILABLE,
+        IMMEDIATE_DEPENDENCY_AVAILABLE(1, ServiceEvent.Kind.IMMEDIATE_DEPENDENCY_AVAILABLE),
         /** Notify the listener a transitive dependency is unavailable. */
-        TRANSITIVE_DEPENDENCY_UNAVAILABLE,
+        TRANSITIVE_DEPENDENCY_UNAVAILABLE(2, ServiceEvent.Kind.TRANSITIVE_DEPENDENCY_UNAVAILABLE),
         /** Notify the listener that all previously unavailable transitive dependencies are now available. */
-        TRANSITIVE_DEPENDENCY_AVAILABLE,
+        TRANSITIVE_DEPENDENCY_AVAILABLE(2, ServiceEvent.Kind.TRANSITIVE_DEPENDENCY_AVAILABLE),
         /** Notify the listener that the service is going to be removed. */
-        REMOVE_REQUESTED,
+        REMOVE_REQUESTED(3, ServiceEvent.Kind.REMOVE_REQUESTED),
         /** Notify the listener that the service is no longer going to be removed. */
-        REMOVE_REQUEST_CLEARED
+        REMOVE_REQUEST_CLEARED(3, ServiceEvent.Kind.REMOVE_REQUEST_CLEARED);
+
+        /**
+         * The pair of opposite notifications this notification belongs to, or -1 if it is never coalesced.
+         */
+        private final int pair;
+        /**
+         * The kind of service event recorded for this notification, or {@code null} if none is.
+         */
+        private final ServiceEvent.Kind kind;
+
+        ListenerNotification(final int pair, final ServiceEvent.Kind kind) {
+            this.pair = pair;
+            this.kind = kind;
+        }
     }
 
+    private static final int NOTICE_PAIRS = 4;
+
     /**
      * Invokes the listener, performing the notification specified.
      *
@@ -1408,6 +1732,31 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
      */
     private void invokeListener(final ServiceListener<? super S> listener, final ListenerNotification notification, final Transition transition) {
         assert !holdsLock(this);
+        try {
+            callListener(listener, notification, transition);
+        } finally {
+            // perform transition tasks
+            final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+            synchronized (this) {
+                // Subtract one for this executing listener
+                asyncTasks --;
+                transition(tasks);
+                asyncTasks += tasks.size();
+            }
+            doExecute(tasks);
+        }
+    }
+
+    /**
+     * Call the listener method for the notification specified, without accounting for the task.  A failure of the
+     * listener is logged.
+     *
+     * @param listener      listener to be invoked
+     * @param notification  specified notification
+     * @param transition    the transition to be notified, only relevant if {@code notification} is
+     *                      {@link ListenerNotification#TRANSITION}
+     */
+    private void callListener(final ServiceListener<? super S> listener, final ListenerNotification notification, final Transition transition) {
         // first set the TCCL
         final ClassLoader contextClassLoader = setTCCL(listener.getClass().getClassLoader());
         try {
@@ -1459,15 +1808,6 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         } finally {
             // reset TCCL
             setTCCL(contextClassLoader);
-            // perform transition tasks
-            final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
-            synchronized (this) {
-                // Subtract one for this executing listener
-                asyncTasks --;
-                transition(tasks);
-                asyncTasks += tasks.size();
-            }
-            doExecute(tasks);
         }
     }
 
@@ -1493,26 +1833,36 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     private Dependent[][] getDependents() {
         IdentityHashSet<Dependent> dependentSet = primaryRegistration.getDependents();
         if (aliasRegistrations.length == 0) {
+            if (dependentSet == null) {
+                return children == null ? NO_DEPENDENT_ARRAYS : new Dependent[][] { NO_DEPENDENTS, getChildArray(NO_DEPENDENTS) };
+            }
             synchronized (dependentSet) {
-                return new Dependent[][] { dependentSet.toScatteredArray(NO_DEPENDENTS),
-                        children.toScatteredArray(NO_DEPENDENTS)};
+                if (dependentSet.isEmpty() && children == null) {
+                    return NO_DEPENDENT_ARRAYS;
+                }
+                return new Dependent[][] { dependentSet.toCompactArray(NO_DEPENDENTS),
+                        getChildArray(NO_DEPENDENTS)};
             }
         }
         Dependent[][] dependents = new Dependent[aliasRegistrations.length + 2][];
-        synchronized (dependentSet) {
-            dependents[0] = dependentSet.toScatteredArray(NO_DEPENDENTS);
-        }
-        dependents[1] = children.toScatteredArray(NO_DEPENDENTS);
+        dependents[0] = toArray(dependentSet);
+        dependents[1] = getChildArray(NO_DEPENDENTS);
         for (int i = 0; i < aliasRegistrations.length; i++) {
             final ServiceRegistrationImpl alias = aliasRegistrations[i];
-            final IdentityHashSet<Dependent> aliasDependentSet = alias.getDependents();
-            synchronized (aliasDependentSet) {
-                dependents[i + 2] = aliasDependentSet.toScatteredArray(NO_DEPENDENTS);
-            }
+            dependents[i + 2] = toArray(alias.getDependents());
         }
         return dependents;
     }
 
+    private static Dependent[] toArray(final IdentityHashSet<Dependent> dependentSet) {
+        if (dependentSet == null) {
+            return NO_DEPENDENTS;
+        }
+        synchronized (dependentSet) {
+            return dependentSet.toCompactArray(NO_DEPENDENTS);
+        }
+    }
+
     /**
      * Returns a compiled map of all dependents of this service mapped by the dependency name.
      * This map can be used when it is necessary to perform notifications to these dependents that require
@@ -1533,8 +1883,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
     private void addDependentsByName(ServiceRegistrationImpl registration, Map<ServiceName, Dependent[]> dependentsByName) {
         IdentityHashSet<Dependent> registrationDependents = registration.getDependents();
+        if (registrationDependents == null) {
+            return;
+        }
         synchronized(registrationDependents) {
-            dependentsByName.put(registration.getName(), registrationDependents.toScatteredArray(NO_DEPENDENTS));
+            if (registrationDependents.isEmpty()) {
+                return;
+            }
+            dependentsByName.put(registration.getName(), registrationDependents.toCompactArray(NO_DEPENDENTS));
         }
     }
 
@@ -1549,13 +1905,28 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         injection.getTarget().inject(injection.getSource().getValue());
     }
 
-    private static ClassLoader setTCCL(ClassLoader newTCCL) {
+    /**
+     * Set the TCCL of the current thread.  Nothing is changed or allocated if the TCCL is already the given one, which
+     * also covers the restore after a call that did not need to change it.
+     *
+     * @param newTCCL the new TCCL
+     * @return the previous TCCL
+     */
+    static ClassLoader setTCCL(ClassLoader newTCCL) {
         final SecurityManager sm = System.getSecurityManager();
-        final SetTCCLAction setTCCLAction = new SetTCCLAction(newTCCL);
         if (sm != null) {
-            return AccessController.doPrivileged(setTCCLAction);
+            final ClassLoader oldTCCL = AccessController.doPrivileged(GetTCCLAction.INSTANCE);
+            if (oldTCCL != newTCCL) {
+                AccessController.doPrivileged(new SetTCCLAction(newTCCL));
+            }
+            return oldTCCL;
         } else {
-            return setTCCLAction.run();
+            final Thread thread = Thread.currentThread();
+            final ClassLoader oldTCCL = thread.getContextClassLoader();
+            if (oldTCCL != newTCCL) {
+                thread.setContextClassLoader(newTCCL);
+            }
+            return oldTCCL;
         }
     }
 
@@ -1659,7 +2030,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
         ServiceUnavailableTask() {
             dependents = getDependentsByDependencyName();
-            children = ServiceControllerImpl.this.children.toScatteredArray(NO_DEPENDENTS);
+            children = getChildArray(NO_DEPENDENTS);
         }
 
         public void run() {
@@ -1667,12 +2038,12 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 for (Map.Entry<ServiceName, Dependent[]> dependentEntry: dependents.entrySet()) {
                     ServiceName serviceName = dependentEntry.getKey();
                     for (Dependent dependent: dependentEntry.getValue()) {
-                        if (dependent != null) dependent.immediateDependencyUnavailable(serviceName);
+                        dependent.immediateDependencyUnavailable(serviceName);
                     }
                 }
                 final ServiceName primaryRegistrationName = primaryRegistration.getName();
                 for (Dependent child: children) {
-                    if (child != null) child.immediateDependencyUnavailable(primaryRegistrationName);
+                    child.immediateDependencyUnavailable(primaryRegistrationName);
                 }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
                 synchronized (ServiceControllerImpl.this) {
@@ -1695,7 +2066,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
         ServiceAvailableTask() {
             dependents = getDependentsByDependencyName();
-            children = ServiceControllerImpl.this.children.toScatteredArray(NO_DEPENDENTS);
+            children = getChildArray(NO_DEPENDENTS);
         }
 
         public void run() {
@@ -1703,12 +2074,12 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 for (Map.Entry<ServiceName, Dependent[]> dependentEntry: dependents.entrySet()) {
                     ServiceName serviceName = dependentEntry.getKey();
                     for (Dependent dependent: dependentEntry.getValue()) {
-                        if (dependent != null) dependent.immediateDependencyAvailable(serviceName);
+                        dependent.immediateDependencyAvailable(serviceName);
                     }
                 }
                 final ServiceName primaryRegistrationName = primaryRegistration.getName();
                 for (Dependent child: children) {
-                    if (child != null) child.immediateDependencyAvailable(primaryRegistrationName);
+                    child.immediateDependencyAvailable(primaryRegistrationName);
                 }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
                 synchronized (ServiceControllerImpl.this) {
@@ -1727,6 +2098,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     private class StartTask implements Runnable {
 
         private final boolean doInjection;
+        private boolean queued;
 
         StartTask(final boolean doInjection) {
             this.doInjection = doInjection;
@@ -1734,6 +2106,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
         public void run() {
             assert !holdsLock(ServiceControllerImpl.this);
+            final ConcurrencyGroup concurrencyGroup = ServiceControllerImpl.this.concurrencyGroup;
+            if (concurrencyGroup != null && ! queued) {
+                // when queued, this task is run again once the group hands a slot over to it
+                queued = true;
+                if (! concurrencyGroup.acquire(this)) {
+                    return;
+                }
+            }
             final ServiceName serviceName = primaryRegistration.getName();
             final long startNanos = System.nanoTime();
             final StartContextImpl context = new StartContextImpl(startNanos);
@@ -1758,6 +2138,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     transition(tasks);
                     asyncTasks += tasks.size();
                 }
+                releaseConcurrencySlot();
                 performOutInjections(serviceName);
                 doExecute(tasks);
             } catch (StartException e) {
@@ -1771,22 +2152,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
         private void performInjections() {
             if (doInjection) {
-                final int injectionsLength = injections.length;
-                boolean ok = false;
-                int i = 0;
-                try {
-                    for (; i < injectionsLength; i++) {
-                        final ValueInjection<?> injection = injections[i];
-                        doInject(injection);
-                    }
-                    ok = true;
-                } finally {
-                    if (! ok) {
-                        for (; i >= 0; i--) {
-                            injections[i].getTarget().uninject();
-                        }
-                    }
-                }
+                injectionPlan.inject();
             }
         }
 
@@ -1805,11 +2171,18 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             }
         }
 
-        private void startService(Service<? extends S> service, StartContext context) throws StartException {
+        private void startService(Service<? extends S> service, StartContextImpl context) throws StartException {
             final ClassLoader contextClassLoader = setTCCL(service.getClass().getClassLoader());
+            final BlockedTaskWatchdog watchdog = getServiceContainer().getWatchdog();
+            final BlockedTaskWatchdog.RunningTask runningTask = watchdog == null ? null : watchdog.taskStarted(primaryRegistration.getName(), false);
+            context.blocking.runningTask = runningTask;
             try {
                 service.start(context);
             } finally {
+                context.blocking.runningTask = null;
+                if (runningTask != null) {
+                    watchdog.taskFinished(runningTask);
+                }
                 setTCCL(contextClassLoader);
             }
         }
@@ -1834,6 +2207,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 transition(tasks = new ArrayList<Runnable>());
                 asyncTasks += tasks.size();
             }
+            releaseConcurrencySlot();
             doExecute(tasks);
         }
     }
@@ -1844,8 +2218,8 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
         StopTask(final boolean onlyUninject) {
             this.onlyUninject = onlyUninject;
-            if (!onlyUninject && !ServiceControllerImpl.this.children.isEmpty()) {
-                this.children = ServiceControllerImpl.this.children.toScatteredArray(NO_CONTROLLERS);
+            if (!onlyUninject && ServiceControllerImpl.this.children != null) {
+                this.children = getChildArray(NO_CONTROLLERS);
                 // placeholder async task for child removal; last removed child will decrement this count
                 // see removeChild method to verify when this count is decremented
                 ServiceControllerImpl.this.asyncTasks ++;
@@ -1866,7 +2240,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     try {
                         if (children != null) {
                             for (ServiceController<?> child: children) {
-                                if (child != null) child.setMode(Mode.REMOVE);
+                                child.setMode(Mode.REMOVE);
                             }
                         }
                         final Service<? extends S> service = serviceValue.getValue();
@@ -1905,11 +2279,18 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             }
         }
 
-        private void stopService(Service<? extends S> service, StopContext context) {
+        private void stopService(Service<? extends S> service, StopContextImpl context) {
             final ClassLoader contextClassLoader = setTCCL(service.getClass().getClassLoader());
+            final BlockedTaskWatchdog watchdog = getServiceContainer().getWatchdog();
+            final BlockedTaskWatchdog.RunningTask runningTask = watchdog == null ? null : watchdog.taskStarted(primaryRegistration.getName(), true);
+            context.blocking.runningTask = runningTask;
             try {
                 service.stop(context);
             } finally {
+                context.blocking.runningTask = null;
+                if (runningTask != null) {
+                    watchdog.taskFinished(runningTask);
+                }
                 setTCCL(contextClassLoader);
             }
         }
@@ -1923,35 +2304,73 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         }
     }
 
+    /**
+     * A notification which has been issued to the dependents and/or listeners of this service, and which is
+     * cancelled if the opposite notification is issued before any of its tasks has started.
+     */
+    private static final class Notice {
+        private final ListenerNotification notification;
+        private final Dependent[][] dependents;
+        // the following are guarded by the controller
+        private boolean begun;
+        private boolean cancelled;
+
+        Notice(final ListenerNotification notification, final Dependent[][] dependents) {
+            this.notification = notification;
+            this.dependents = dependents;
+        }
+    }
+
+    /**
+     * Notifies all listeners of one notification in turn, then makes a single transition.
+     */
     private class ListenerTask implements Runnable {
 
         private final ListenerNotification notification;
-        private final ServiceListener<? super S> listener;
+        private final ServiceListener<? super S>[] listeners;
         private final Transition transition;
+        private final Notice notice;
 
-        ListenerTask(final ServiceListener<? super S> listener, final Transition transition) {
-            this.listener = listener;
+        ListenerTask(final ServiceListener<? super S>[] listeners, final Transition transition) {
+            this.listeners = listeners;
             this.transition = transition;
             notification = ListenerNotification.TRANSITION;
+            notice = null;
         }
 
-        ListenerTask(final ServiceListener<? super S> listener, final ListenerNotification notification) {
-            this.listener = listener;
+        ListenerTask(final ServiceListener<? super S>[] listeners, final ListenerNotification notification, final Notice notice) {
+            this.listeners = listeners;
             transition = null;
             this.notification = notification;
+            this.notice = notice;
         }
 
         public void run() {
             assert !holdsLock(ServiceControllerImpl.this);
-            if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                final long start = System.nanoTime();
-                try {
-                    invokeListener(listener, notification, transition);
-                } finally {
-                    writeProfileInfo('L', start, System.nanoTime());
+            try {
+                if (beginNotice(notice)) {
+                    for (ServiceListener<? super S> listener : listeners) {
+                        if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
+                            final long start = System.nanoTime();
+                            try {
+                                callListener(listener, notification, transition);
+                            } finally {
+                                writeProfileInfo('L', start, System.nanoTime());
+                            }
+                        } else {
+                            callListener(listener, notification, transition);
+                        }
+                    }
                 }
-            } else {
-                invokeListener(listener, notification, transition);
+            } finally {
+                final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+                synchronized (ServiceControllerImpl.this) {
+                    // Subtract one for this task
+                    asyncTasks --;
+                    transition(tasks);
+                    asyncTasks += tasks.size();
+                }
+                doExecute(tasks);
             }
         }
     }
@@ -1968,7 +2387,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.immediateDependencyUp();
+                        dependent.immediateDependencyUp();
                     }
                 }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
@@ -1997,7 +2416,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.immediateDependencyDown();
+                        dependent.immediateDependencyDown();
                     }
                 }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
@@ -2018,11 +2437,20 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
 
         private final Dependent[][] dependents;
         private final ServiceControllerImpl<?>[] children;
+        private final Notice notice;
+
+        DependencyFailedTask(final Notice notice) {
+            dependents = notice.dependents;
+            children = null;
+            this.notice = notice;
+        }
 
         DependencyFailedTask(final Dependent[][] dependents, final boolean removeChildren) {
             this.dependents = dependents;
-            if (removeChildren && !ServiceControllerImpl.this.children.isEmpty()) {
-                this.children = ServiceControllerImpl.this.children.toScatteredArray(NO_CONTROLLERS);
+            notice = null;
+            resetNotice(ListenerNotification.DEPENDENCY_FAILURE.pair);
+            if (removeChildren && ServiceControllerImpl.this.children != null) {
+                this.children = getChildArray(NO_CONTROLLERS);
                 // placeholder async task for child removal; last removed child will decrement this count
                 // see removeChild method to verify when this count is decremented
                 ServiceControllerImpl.this.asyncTasks ++;
@@ -2036,12 +2464,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             try {
                 if (children != null) {
                     for (ServiceControllerImpl<?> child: children) {
-                        if (child != null) child.setMode(Mode.REMOVE);
+                        child.setMode(Mode.REMOVE);
                     }
                 }
-                for (Dependent[] dependentArray : dependents) {
-                    for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.dependencyFailed();
+                if (beginNotice(notice)) {
+                    for (Dependent[] dependentArray : dependents) {
+                        for (Dependent dependent : dependentArray) {
+                            dependent.dependencyFailed();
+                        }
                     }
                 }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
@@ -2061,16 +2491,26 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
     private class DependencyRetryingTask implements Runnable {
 
         private final Dependent[][] dependents;
+        private final Notice notice;
+
+        DependencyRetryingTask(final Notice notice) {
+            dependents = notice.dependents;
+            this.notice = notice;
+        }
 
         DependencyRetryingTask(final Dependent[][] dependents) {
             this.dependents = dependents;
+            notice = null;
+            resetNotice(ListenerNotification.DEPENDENCY_FAILURE_CLEAR.pair);
         }
 
         public void run() {
             try {
-                for (Dependent[] dependentArray : dependents) {
-                    for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.dependencyFailureCleared();
+                if (beginNotice(notice)) {
+                    for (Dependent[] dependentArray : dependents) {
+                        for (Dependent dependent : dependentArray) {
+                            dependent.dependencyFailureCleared();
+                        }
                     }
                 }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
@@ -2105,6 +2545,9 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 }
                 final ServiceControllerImpl<?> parent = ServiceControllerImpl.this.parent;
                 if (parent != null) parent.removeChild(ServiceControllerImpl.this);
+                if (concurrencyGroup != null) {
+                    primaryRegistration.getContainer().leaveConcurrencyGroup(concurrencyGroup);
+                }
                 final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
                 synchronized (ServiceControllerImpl.this) {
                     // Subtract one for this task
@@ -2119,12 +2562,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         }
     }
 
-    private class StartContextImpl implements StartContext {
+    private class StartContextImpl implements StartContext, BlockingLifecycleContext {
 
         private ContextState state = ContextState.SYNC;
 
         private final long startNanos;
 
+        private final ManagedBlocking blocking = new ManagedBlocking();
+
         private StartContextImpl(final long startNanos) {
             this.startNanos = startNanos;
         }
@@ -2152,6 +2597,7 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                 transition(tasks);
                 asyncTasks += tasks.size();
             }
+            releaseConcurrencySlot();
             doExecute(tasks);
         }
 
@@ -2193,9 +2639,23 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
                     asyncTasks += tasks.size();
                 }
             }
+            releaseConcurrencySlot();
             doExecute(tasks);
         }
 
+        public void beginBlocking() throws IllegalStateException {
+            synchronized (ServiceControllerImpl.this) {
+                if (state == ContextState.COMPLETE || state == ContextState.FAILED) {
+                    throw new IllegalStateException("Lifecycle context is no longer valid");
+                }
+            }
+            blocking.begin();
+        }
+
+        public void endBlocking() throws IllegalStateException {
+            blocking.end();
+        }
+
         public long getElapsedTime() {
             return System.nanoTime() - lifecycleTime;
         }
@@ -2214,6 +2674,62 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         }
     }
 
+    /**
+     * The state of the blocking sections declared through {@link BlockingLifecycleContext#beginBlocking()} by a single
+     * lifecycle method invocation.
+     */
+    private final class ManagedBlocking {
+        /**
+         * The watchdog registration of the lifecycle method, if it is still running synchronously.
+         */
+        private volatile BlockedTaskWatchdog.RunningTask runningTask;
+        // the following are guarded by this
+        private int depth;
+        private boolean compensated;
+
+        void begin() {
+            synchronized (this) {
+                if (depth++ > 0) {
+                    return;
+                }
+            }
+            final ServiceContainerImpl container = getServiceContainer();
+            if (! ServiceContainerImpl.ServiceThread.isCurrentThreadOf(container)) {
+                // not holding on to a container thread; nothing to compensate
+                return;
+            }
+            final BlockedTaskWatchdog.RunningTask runningTask = this.runningTask;
+            if (runningTask == null || container.getWatchdog().enterManagedBlocking(runningTask)) {
+                container.getExecutor().addCompensation();
+                synchronized (this) {
+                    compensated = true;
+                }
+            }
+        }
+
+        void end() {
+            final boolean compensated;
+            synchronized (this) {
+                if (depth == 0) {
+                    throw new IllegalStateException("No blocking section to end");
+                }
+                if (--depth > 0) {
+                    return;
+                }
+                compensated = this.compensated;
+                this.compensated = false;
+            }
+            final ServiceContainerImpl container = getServiceContainer();
+            final BlockedTaskWatchdog.RunningTask runningTask = this.runningTask;
+            if (runningTask != null) {
+                container.getWatchdog().exitManagedBlocking(runningTask);
+            }
+            if (compensated) {
+                container.getExecutor().removeCompensation();
+            }
+        }
+    }
+
     private final class ChildServiceTarget extends ServiceTargetImpl {
         private volatile boolean valid = true;
 
@@ -2256,12 +2772,14 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
         }
     }
 
-    private class StopContextImpl implements StopContext {
+    private class StopContextImpl implements StopContext, BlockingLifecycleContext {
 
         private ContextState state = ContextState.SYNC;
 
         private final long startNanos;
 
+        private final ManagedBlocking blocking = new ManagedBlocking();
+
         private StopContextImpl(final long startNanos) {
             this.startNanos = startNanos;
         }
@@ -2312,6 +2830,19 @@ final class ServiceControllerImpl<S> implements ServiceController<S>, Dependent
             }
         }
 
+        public void beginBlocking() throws IllegalStateException {
+            synchronized (ServiceControllerImpl.this) {
+                if (state == ContextState.COMPLETE) {
+                    throw new IllegalStateException("Lifecycle context is no longer valid");
+                }
+            }
+            blocking.begin();
+        }
+
+        public void endBlocking() throws IllegalStateException {
+            blocking.end();
+        }
+
         public long getElapsedTime() {
             return System.nanoTime() - lifecycleTime;
         }
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * An event of the service event stream of a container.
+ *
+ * @see ServiceContainer#subscribe(ServiceEventFilter, int, ServiceEventConsumer)
+ */
+public final class ServiceEvent {
+
+    private final ServiceController<?> controller;
+    private final Kind kind;
+    private final ServiceController.Transition transition;
+    private final long time;
+
+    ServiceEvent(final ServiceController<?> controller, final Kind kind, final ServiceController.Transition transition, final long time) {
+        this.controller = controller;
+        this.kind = kind;
+        this.transition = transition;
+        this.time = time;
+    }
+
+    /**
+     * Get the controller of the service this event occurred on.
+     *
+     * @return the controller
+     */
+    public ServiceController<?> getController() {
+        return controller;
+    }
+
+    /**
+     * Get the name of the service this event occurred on.
+     *
+     * @return the service name
+     */
+    public ServiceName getServiceName() {
+        return controller.getName();
+    }
+
+    /**
+     * Get the kind of this event.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the transition of a {@link Kind#TRANSITION TRANSITION} event.
+     *
+     * @return the transition, or {@code null} for other kinds of event
+     */
+    public ServiceController.Transition getTransition() {
+        return transition;
+    }
+
+    /**
+     * Get the time at which this event occurred, as given by {@link System#nanoTime()}.
+     *
+     * @return the event time
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public String toString() {
+        return kind == Kind.TRANSITION ? controller.getName() + " " + transition : controller.getName() + " " + kind;
+    }
+
+    /**
+     * The kinds of service event.  Each corresponds to one of the {@link ServiceListener} callbacks.
+     */
+    public enum Kind {
+        /** The service transitioned to a new sub-state; see {@link ServiceListener#transition}. */
+        TRANSITION,
+        /** See {@link ServiceListener#serviceRemoveRequested}. */
+        REMOVE_REQUESTED,
+        /** See {@link ServiceListener#serviceRemoveRequestCleared}. */
+        REMOVE_REQUEST_CLEARED,
+        /** See {@link ServiceListener#dependencyFailed}. */
+        DEPENDENCY_FAILURE,
+        /** See {@link ServiceListener#dependencyFailureCleared}. */
+        DEPENDENCY_FAILURE_CLEAR,
+        /** See {@link ServiceListener#immediateDependencyUnavailable}. */
+        IMMEDIATE_DEPENDENCY_UNAVAILABLE,
+        /** See {@link ServiceListener#immediateDependencyAvailable}. */
+        IMMEDIATE_DEPENDENCY_AVAILABLE,
+        /** See {@link ServiceListener#transitiveDependencyUnavailable}. */
+        TRANSITIVE_DEPENDENCY_UNAVAILABLE,
+        /** See {@link ServiceListener#transitiveDependencyAvailable}. */
+        TRANSITIVE_DEPENDENCY_AVAILABLE
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.List;
+
+/**
+ * A consumer of the service event stream of a container.  Events are delivered in batches, in the order in which
+ * they were recorded, by one thread at a time.  A consumer should return promptly: it runs on a container thread.
+ *
+ * @see ServiceContainer#subscribe(ServiceEventFilter, int, ServiceEventConsumer)
+ */
+public interface ServiceEventConsumer {
+
+    /**
+     * Handle a batch of events.
+     *
+     * @param events the events (not {@code null}, not empty, must not be retained after the method returns)
+     * @param dropped the number of events which were dropped since the previous batch because the subscription buffer
+     *      was full
+     */
+    void handleEvents(List<ServiceEvent> events, long dropped);
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * A filter selecting the events delivered to a subscription.  The filter which accepts everything is
+ * {@link #all()}; the other methods return a new filter which is further restricted.  Instances are immutable.
+ *
+ * @see ServiceContainer#subscribe(ServiceEventFilter, int, ServiceEventConsumer)
+ */
+public final class ServiceEventFilter {
+
+    private static final ServiceEventFilter ALL = new ServiceEventFilter(null, null, null);
+
+    private final EnumSet<ServiceEvent.Kind> kinds;
+    private final EnumSet<ServiceController.Transition> transitions;
+    private final ServiceName[] prefixes;
+
+    private ServiceEventFilter(final EnumSet<ServiceEvent.Kind> kinds, final EnumSet<ServiceController.Transition> transitions, final ServiceName[] prefixes) {
+        this.kinds = kinds;
+        this.transitions = transitions;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Get the filter which accepts all events.
+     *
+     * @return the filter
+     */
+    public static ServiceEventFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Get a filter which additionally only accepts events of the given kinds.
+     *
+     * @param kinds the accepted kinds
+     * @return the new filter
+     */
+    public ServiceEventFilter withKinds(final ServiceEvent.Kind... kinds) {
+        final EnumSet<ServiceEvent.Kind> set = EnumSet.noneOf(ServiceEvent.Kind.class);
+        set.addAll(Arrays.asList(kinds));
+        if (this.kinds != null) {
+            set.retainAll(this.kinds);
+        }
+        return new ServiceEventFilter(set, transitions, prefixes);
+    }
+
+    /**
+     * Get a filter which additionally only accepts {@link ServiceEvent.Kind#TRANSITION TRANSITION} events of the
+     * given transitions.  Events of other kinds are not affected.
+     *
+     * @param transitions the accepted transitions
+     * @return the new filter
+     */
+    public ServiceEventFilter withTransitions(final ServiceController.Transition... transitions) {
+        final EnumSet<ServiceController.Transition> set = EnumSet.noneOf(ServiceController.Transition.class);
+        set.addAll(Arrays.asList(transitions));
+        if (this.transitions != null) {
+            set.retainAll(this.transitions);
+        }
+        return new ServiceEventFilter(kinds, set, prefixes);
+    }
+
+    /**
+     * Get a filter which additionally only accepts events of services whose name is equal to, or a child of, one of
+     * the given names.
+     *
+     * @param prefixes the service name prefixes
+     * @return the new filter
+     */
+    public ServiceEventFilter withPrefixes(final ServiceName... prefixes) {
+        if (this.prefixes == null) {
+            return new ServiceEventFilter(kinds, transitions, prefixes.clone());
+        }
+        // keep the names which are covered by both sets of prefixes
+        final ServiceName[] names = new ServiceName[prefixes.length * this.prefixes.length];
+        int count = 0;
+        for (ServiceName prefix : prefixes) {
+            for (ServiceName existing : this.prefixes) {
+                if (existing.isParentOf(prefix)) {
+                    names[count++] = prefix;
+                } else if (prefix.isParentOf(existing)) {
+                    names[count++] = existing;
+                }
+            }
+        }
+        return new ServiceEventFilter(kinds, transitions, Arrays.copyOf(names, count));
+    }
+
+    boolean accepts(final ServiceName serviceName, final ServiceEvent.Kind kind, final ServiceController.Transition transition) {
+        if (kinds != null && ! kinds.contains(kind)) {
+            return false;
+        }
+        if (transitions != null && transition != null && ! transitions.contains(transition)) {
+            return false;
+        }
+        if (prefixes != null) {
+            for (ServiceName prefix : prefixes) {
+                if (prefix.isParentOf(serviceName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+}
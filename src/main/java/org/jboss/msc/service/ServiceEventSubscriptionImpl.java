@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A subscription to the service event stream.  Events are recorded into a bounded ring buffer by any number of
+ * threads without locking, and drained in batches by a single task on the container executor, which is only
+ * submitted when the buffer goes from empty to non-empty.  Events which do not fit into the buffer are counted and
+ * dropped, so that a slow consumer never holds up the services.
+ */
+final class ServiceEventSubscriptionImpl implements ServiceEventSubscription, Runnable {
+
+    private static final int MAX_BATCH = 256;
+
+    private final ServiceContainerImpl container;
+    private final ServiceEventFilter filter;
+    private final ServiceEventConsumer consumer;
+    private final AtomicReferenceArray<ServiceEvent> buffer;
+    private final int mask;
+
+    @SuppressWarnings("unused")
+    private volatile long tail;
+    @SuppressWarnings("unused")
+    private volatile long head;
+    @SuppressWarnings("unused")
+    private volatile long dropped;
+    @SuppressWarnings("unused")
+    private volatile int scheduled;
+    // only accessed by the draining task
+    private long reportedDropped;
+
+    private static final AtomicLongFieldUpdater<ServiceEventSubscriptionImpl> tailUpdater = AtomicLongFieldUpdater.newUpdater(ServiceEventSubscriptionImpl.class, "tail");
+    private static final AtomicLongFieldUpdater<ServiceEventSubscriptionImpl> headUpdater = AtomicLongFieldUpdater.newUpdater(ServiceEventSubscriptionImpl.class, "head");
+    private static final AtomicLongFieldUpdater<ServiceEventSubscriptionImpl> droppedUpdater = AtomicLongFieldUpdater.newUpdater(ServiceEventSubscriptionImpl.class, "dropped");
+    private static final AtomicIntegerFieldUpdater<ServiceEventSubscriptionImpl> scheduledUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceEventSubscriptionImpl.class, "scheduled");
+
+    ServiceEventSubscriptionImpl(final ServiceContainerImpl container, final ServiceEventFilter filter, final int capacity, final ServiceEventConsumer consumer) {
+        this.container = container;
+        this.filter = filter;
+        this.consumer = consumer;
+        final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        buffer = new AtomicReferenceArray<ServiceEvent>(size);
+        mask = size - 1;
+    }
+
+    ServiceEventFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Record an event.  May be called under a controller lock.
+     *
+     * @param event the event
+     */
+    void record(final ServiceEvent event) {
+        final AtomicReferenceArray<ServiceEvent> buffer = this.buffer;
+        long t;
+        do {
+            t = tail;
+            if (t - head > mask) {
+                droppedUpdater.incrementAndGet(this);
+                return;
+            }
+        } while (! tailUpdater.compareAndSet(this, t, t + 1));
+        buffer.set((int) t & mask, event);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled == 0 && scheduledUpdater.compareAndSet(this, 0, 1)) {
+            final Executor executor = container.getExecutor();
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // the container is gone; leave the events where they are
+                scheduled = 0;
+            }
+        }
+    }
+
+    public void run() {
+        final AtomicReferenceArray<ServiceEvent> buffer = this.buffer;
+        final ArrayList<ServiceEvent> batch = new ArrayList<ServiceEvent>(Math.min(mask + 1, MAX_BATCH));
+        long h = head;
+        ServiceEvent event;
+        // an event which is claimed but not yet written stops the batch; its writer reschedules us if needed
+        while (batch.size() < MAX_BATCH && (event = buffer.get((int) h & mask)) != null) {
+            buffer.lazySet((int) h & mask, null);
+            batch.add(event);
+            headUpdater.lazySet(this, ++h);
+        }
+        if (! batch.isEmpty()) {
+            final long dropped = this.dropped;
+            try {
+                consumer.handleEvents(batch, dropped - reportedDropped);
+            } catch (Throwable t) {
+                ServiceLogger.SERVICE.eventConsumerFailed(t, consumer);
+            }
+            reportedDropped = dropped;
+        }
+        scheduled = 0;
+        // events may have been recorded after we stopped draining but before the flag was cleared
+        if (buffer.get((int) head & mask) != null) {
+            schedule();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public void cancel() {
+        container.removeSubscription(this);
+    }
+}
@@ -24,7 +24,8 @@ package org.jboss.msc.service;
 
 /**
  * A listener for service lifecycle events. The associated controller will not leave its current state until
- * all listeners finish running.
+ * all listeners finish running.  The listeners of a service are notified of each event one after the other, in a
+ * single task, so a listener method should return promptly.
  *
  * @param <S> the service type
  *
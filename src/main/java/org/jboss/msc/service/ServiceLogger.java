@@ -89,4 +89,28 @@ interface ServiceLogger {
 
     @Message(id = 11, value = "Service not started")
     IllegalStateException serviceNotStarted();
+
+    @LogMessage(level = WARN)
+    @Message(id = 12, value = "Service %s has been blocked in %s() for %d ms on thread %s")
+    void blockedTask(@Cause Throwable stack, ServiceName serviceName, String method, Long millis, String threadName);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 13, value = "Thread pool sizing policy %s failed")
+    void sizingPolicyFailed(@Cause Throwable cause, ThreadPoolSizingPolicy policy);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14, value = "Shutdown of container %s has not completed after %d ms: %s")
+    void shutdownDeadlineExceeded(String containerName, Long millis, ShutdownProgress progress);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 15, value = "Service event consumer %s failed")
+    void eventConsumerFailed(@Cause Throwable cause, ServiceEventConsumer consumer);
+
+    @LogMessage(level = WARN)
+    @Message(id = 16, value = "Ignoring invalid value \"%s\" of system property %s")
+    void invalidSystemProperty(String value, String propertyName);
+
+    @LogMessage(level = WARN)
+    @Message(id = 17, value = "Service %s did not complete its stop within the %d ms exit deadline")
+    void exitStopTimedOut(ServiceName serviceName, Long millis);
 }
@@ -43,16 +43,18 @@ final class ServiceRegistrationImpl implements Dependency {
      */
     private final ServiceName name;
     /**
-     * The set of dependents on this registration.
+     * The set of dependents on this registration, or {@code null} if it never had one.  Created once, under the lock,
+     * when the first dependent is added, and never set back to {@code null}.
      */
-    private final IdentityHashSet<Dependent> dependents = new IdentityHashSet<Dependent>(0);
+    private volatile IdentityHashSet<Dependent> dependents;
 
     // Mutable properties
 
     /**
-     * The current instance.
+     * The current instance.  Only written under the lock, so that it is consistent with the demand count and the
+     * dependents, but read without it.
      */
-    private ServiceControllerImpl<?> instance;
+    private volatile ServiceControllerImpl<?> instance;
     /**
      * The number of dependent instances which place a demand-to-start on this registration.  If this value is >0,
      * propagate a demand to the instance, if any.
@@ -65,14 +67,23 @@ final class ServiceRegistrationImpl implements Dependency {
     }
 
     /**
-     * Returns the dependents set.
+     * Returns the dependents set, which must be locked to be read and must not be modified.
      *
-     * @return the dependents set
+     * @return the dependents set, or {@code null} if no dependent was ever added
      */
     IdentityHashSet<Dependent> getDependents() {
         return dependents;
     }
 
+    private IdentityHashSet<Dependent> getOrCreateDependents() {
+        assert holdsLock(this);
+        IdentityHashSet<Dependent> dependents = this.dependents;
+        if (dependents == null) {
+            this.dependents = dependents = new IdentityHashSet<Dependent>(0);
+        }
+        return dependents;
+    }
+
     /**
      * Add a dependent to this controller.
      *
@@ -85,6 +96,7 @@ final class ServiceRegistrationImpl implements Dependency {
         final ServiceControllerImpl<?> instance;
         final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
         synchronized (this) {
+            final IdentityHashSet<Dependent> dependents = getOrCreateDependents();
             synchronized (dependents) {
                 if (dependents.contains(dependent)) {
                     throw new IllegalStateException("Dependent already exists on this registration");
@@ -134,6 +146,10 @@ final class ServiceRegistrationImpl implements Dependency {
     public void removeDependent(final Dependent dependent) {
         assert ! holdsLock(this);
         assert ! holdsLock(dependent);
+        final IdentityHashSet<Dependent> dependents = this.dependents;
+        if (dependents == null) {
+            return;
+        }
         synchronized (dependents) {
             dependents.remove(dependent);
         }
@@ -176,10 +192,7 @@ final class ServiceRegistrationImpl implements Dependency {
     @Override
     public void dependentStopped() {
         assert ! holdsLock(this);
-        final ServiceControllerImpl<?> instance;
-        synchronized (this) {
-            instance = this.instance;
-        }
+        final ServiceControllerImpl<?> instance = this.instance;
         if (instance != null) {
             instance.dependentStopped();
         }
@@ -187,13 +200,11 @@ final class ServiceRegistrationImpl implements Dependency {
 
     @Override
     public Object getValue() throws IllegalStateException {
-        synchronized (this) {
-            final ServiceControllerImpl<?> instance = this.instance;
-            if (instance == null) {
-                throw new IllegalStateException("Service is not installed");
-            } else {
-                return instance.getValue();
-            }
+        final ServiceControllerImpl<?> instance = this.instance;
+        if (instance == null) {
+            throw new IllegalStateException("Service is not installed");
+        } else {
+            return instance.getValue();
         }
     }
 
@@ -205,10 +216,9 @@ final class ServiceRegistrationImpl implements Dependency {
     @Override
     public void dependentStarted() {
         assert ! holdsLock(this);
-        synchronized (this) {
-            if (instance != null) {
-                instance.dependentStarted();
-            }
+        final ServiceControllerImpl<?> instance = this.instance;
+        if (instance != null) {
+            instance.dependentStarted();
         }
     }
 
@@ -239,8 +249,6 @@ final class ServiceRegistrationImpl implements Dependency {
     }
 
     ServiceControllerImpl<?> getInstance() {
-        synchronized (this) {
-            return instance;
-        }
+        return instance;
     }
 }
@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * The engine which removes all the services of a container on shutdown.  Rather than requesting the removal of every
+ * service from the calling thread, removal is requested in batches from the container threads, so that the requests
+ * are processed in parallel as soon as they are issued.  The leaves of the service graph - the services nothing
+ * depends on - are issued in a first wave, so they start stopping right away; the remaining services follow in a
+ * second wave.  The service state machine holds each service until its dependents and children are down.
+ */
+final class ShutdownEngine extends AbstractServiceListener<Object> {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final ServiceContainerImpl container;
+    private final Runnable completionTask;
+    private final long startNanos = System.nanoTime();
+    // guarded by this
+    private final ArrayList<ServiceControllerImpl<?>> controllers = new ArrayList<ServiceControllerImpl<?>>();
+    private ArrayList<ServiceControllerImpl<?>> batch = new ArrayList<ServiceControllerImpl<?>>(BATCH_SIZE);
+    private final ArrayList<ServiceControllerImpl<?>> secondWave = new ArrayList<ServiceControllerImpl<?>>();
+    private ScheduledFuture<?> deadline;
+    /**
+     * The number of services not yet removed, plus one until {@link #start(long)} is called.
+     */
+    @SuppressWarnings({ "UnusedDeclaration" })
+    private volatile int count = 1;
+
+    private static final AtomicIntegerFieldUpdater<ShutdownEngine> countUpdater = AtomicIntegerFieldUpdater.newUpdater(ShutdownEngine.class, "count");
+
+    /**
+     * Construct a new instance.
+     *
+     * @param container the container being shut down
+     * @param completionTask the task to run once every service is removed
+     */
+    ShutdownEngine(final ServiceContainerImpl container, final Runnable completionTask) {
+        this.container = container;
+        this.completionTask = completionTask;
+    }
+
+    /**
+     * Enroll a service for removal.  Leaves are issued immediately, in batches; other services are issued by
+     * {@link #start(long)}.
+     *
+     * @param controller the service controller
+     */
+    void enroll(final ServiceControllerImpl<?> controller) {
+        try {
+            controller.addListener(this);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        final boolean leaf = controller.isLeaf();
+        ArrayList<ServiceControllerImpl<?>> full = null;
+        synchronized (this) {
+            controllers.add(controller);
+            if (leaf) {
+                batch.add(controller);
+                if (batch.size() == BATCH_SIZE) {
+                    full = batch;
+                    batch = new ArrayList<ServiceControllerImpl<?>>(BATCH_SIZE);
+                }
+            } else {
+                secondWave.add(controller);
+            }
+        }
+        if (full != null) {
+            issue(full);
+        }
+    }
+
+    /**
+     * Issue the remaining removal requests.  Must be called once every service has been enrolled.
+     *
+     * @param deadlineMillis the time after which the remaining services are reported, or 0 for no deadline
+     */
+    void start(final long deadlineMillis) {
+        final ArrayList<ServiceControllerImpl<?>> lastLeaves;
+        final ArrayList<ServiceControllerImpl<?>> secondWave;
+        synchronized (this) {
+            lastLeaves = batch;
+            batch = null;
+            secondWave = this.secondWave;
+            if (deadlineMillis > 0L) {
+                deadline = BlockedTaskWatchdog.SchedulerHolder.SCHEDULER.schedule(new Runnable() {
+                    public void run() {
+                        final ShutdownProgress progress = getProgress();
+                        if (progress.getRemainingCount() > 0) {
+                            ServiceLogger.ROOT.shutdownDeadlineExceeded(container.getName(), Long.valueOf(deadlineMillis), progress);
+                        }
+                    }
+                }, deadlineMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (! lastLeaves.isEmpty()) {
+            issue(lastLeaves);
+        }
+        final int size = secondWave.size();
+        for (int i = 0; i < size; i += BATCH_SIZE) {
+            issue(secondWave.subList(i, Math.min(i + BATCH_SIZE, size)));
+        }
+        tick();
+    }
+
+    /**
+     * Get the current progress of the shutdown.  The blockers are the remaining services which are currently
+     * stopping or being removed; every other remaining service waits for them.
+     *
+     * @return the progress
+     */
+    ShutdownProgress getProgress() {
+        final ServiceControllerImpl<?>[] snapshot;
+        final boolean started;
+        synchronized (this) {
+            snapshot = controllers.toArray(new ServiceControllerImpl<?>[controllers.size()]);
+            started = batch == null;
+        }
+        final List<ServiceName> blockers = new ArrayList<ServiceName>();
+        for (ServiceControllerImpl<?> controller : snapshot) {
+            switch (controller.getSubstate()) {
+                case STOPPING:
+                case REMOVING:
+                    blockers.add(controller.getName());
+                    break;
+            }
+        }
+        final int remaining = count - (started ? 0 : 1);
+        return new ShutdownProgress(snapshot.length, Math.max(remaining, 0), Collections.unmodifiableList(blockers), System.nanoTime() - startNanos);
+    }
+
+    public void listenerAdded(final ServiceController<?> controller) {
+        countUpdater.getAndIncrement(this);
+    }
+
+    public void transition(final ServiceController<? extends Object> controller, final ServiceController.Transition transition) {
+        if (transition.getAfter() == ServiceController.Substate.REMOVED) {
+            tick();
+        }
+    }
+
+    private void tick() {
+        if (countUpdater.decrementAndGet(this) == 0) {
+            synchronized (this) {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+            }
+            completionTask.run();
+        }
+    }
+
+    private void issue(final List<ServiceControllerImpl<?>> controllers) {
+        final Runnable task = new Runnable() {
+            public void run() {
+                for (ServiceControllerImpl<?> controller : controllers) {
+                    try {
+                        controller.setMode(ServiceController.Mode.REMOVE);
+                    } catch (Throwable t) {
+                        ServiceLogger.ROOT.internalServiceError(t, controller.getName());
+                    }
+                }
+            }
+        };
+        try {
+            container.getExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+}
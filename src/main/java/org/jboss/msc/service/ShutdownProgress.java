@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A snapshot of the progress of a container shutdown.
+ *
+ * @see ServiceContainer#getShutdownProgress()
+ */
+public final class ShutdownProgress implements Serializable {
+
+    private static final long serialVersionUID = 2913622451380474658L;
+
+    private final int totalCount;
+    private final int remainingCount;
+    private final List<ServiceName> blockers;
+    private final long elapsedTime;
+
+    ShutdownProgress(final int totalCount, final int remainingCount, final List<ServiceName> blockers, final long elapsedTime) {
+        this.totalCount = totalCount;
+        this.remainingCount = remainingCount;
+        this.blockers = blockers;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Get the number of services which were present when shutdown began.
+     *
+     * @return the total service count
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the number of services which are not yet removed.
+     *
+     * @return the remaining service count
+     */
+    public int getRemainingCount() {
+        return remainingCount;
+    }
+
+    /**
+     * Get the names of the services which are currently stopping or being removed.  Every other remaining service is
+     * waiting for one of these, directly or indirectly.
+     *
+     * @return the names of the services being removed
+     */
+    public List<ServiceName> getBlockers() {
+        return blockers;
+    }
+
+    /**
+     * Get the amount of time elapsed since shutdown began, in nanoseconds.
+     *
+     * @return the elapsed time
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public String toString() {
+        return String.format("%d of %d services remaining, waiting on %s", Integer.valueOf(remainingCount), Integer.valueOf(totalCount), blockers);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * A marker interface for services which must be stopped even when the container is torn down because the JVM is
+ * exiting.  When the {@code jboss.msc.shutdown.exit} system property is set to {@code true}, the container shutdown
+ * hook does not remove the services of each container; instead it only calls {@link Service#stop(StopContext)} on
+ * the running services which implement this interface, in reverse dependency order.  Listeners are not notified,
+ * injections are not cleared, and the services remain registered.  An asynchronous stop is only awaited until the
+ * deadline given by the {@code jboss.msc.shutdown.deadline} system property, in milliseconds, or 30 seconds by default.
+ * <p>
+ * Services which only release in-process resources do not need to implement this interface; services which must
+ * flush data or release external resources do.
+ */
+public interface StopOnExit {
+}
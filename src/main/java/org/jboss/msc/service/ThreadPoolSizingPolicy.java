@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * A policy which decides the number of worker threads of a service container.  The container periodically samples
+ * its thread pool and asks the policy for the size to use next.  Threads granted temporarily to stand in for blocked
+ * tasks come on top of the size returned by the policy.
+ *
+ * @see ServiceContainer.Factory#create(String, ThreadPoolSizingPolicy)
+ * @see AdaptiveSizingPolicy
+ */
+public interface ThreadPoolSizingPolicy {
+
+    /**
+     * Get the initial number of threads.
+     *
+     * @return the initial pool size (must be greater than zero)
+     */
+    int getInitialPoolSize();
+
+    /**
+     * Compute the pool size to use until the next sample.
+     *
+     * @param statistics the statistics of the last sampling period
+     * @return the new pool size (must be greater than zero)
+     */
+    int getPoolSize(Statistics statistics);
+
+    /**
+     * The statistics of a container thread pool over one sampling period.
+     */
+    interface Statistics {
+
+        /**
+         * Get the current number of threads, not counting threads standing in for blocked tasks.
+         *
+         * @return the current pool size
+         */
+        int getPoolSize();
+
+        /**
+         * Get the number of tasks waiting for a thread at the time of the sample.
+         *
+         * @return the queue depth
+         */
+        int getQueueSize();
+
+        /**
+         * Get the approximate number of threads running a task at the time of the sample.
+         *
+         * @return the active thread count
+         */
+        int getActiveCount();
+
+        /**
+         * Get the number of tasks which completed during the sampling period.
+         *
+         * @return the completed task count
+         */
+        long getCompletedTasks();
+
+        /**
+         * Get the fraction of the task execution time during the sampling period which was not spent on a CPU,
+         * between 0 (purely computational tasks) and 1 (tasks which only wait).  If thread CPU time measurement is not
+         * available, this is always 0.
+         *
+         * @return the blocking ratio
+         */
+        double getBlockingRatio();
+
+        /**
+         * Get the number of processors available to the virtual machine.
+         *
+         * @return the processor count
+         */
+        int getAvailableProcessors();
+    }
+}
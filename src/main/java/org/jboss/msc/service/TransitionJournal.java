@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size journal of the most recent service transitions of a container, kept for post-mortem diagnostics.
+ * Recording claims a slot with a single atomic increment and overwrites the oldest entry, so it never blocks and
+ * never grows.  Enabled by setting the {@code jboss.msc.journal.size} system property to the number of entries to keep;
+ * the size is rounded up to the next power of two, at most {@link #MAX_SIZE}.
+ */
+final class TransitionJournal {
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+
+    @SuppressWarnings("unused")
+    private volatile long next;
+
+    private static final AtomicLongFieldUpdater<TransitionJournal> nextUpdater = AtomicLongFieldUpdater.newUpdater(TransitionJournal.class, "next");
+
+    /**
+     * The largest number of entries a journal keeps.
+     */
+    static final int MAX_SIZE = 1 << 24;
+
+    TransitionJournal(final int size) {
+        assert size <= MAX_SIZE;
+        final int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        entries = new AtomicReferenceArray<Entry>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Record a transition which the current thread is making.
+     *
+     * @param serviceName the service name
+     * @param transition the transition
+     */
+    void record(final ServiceName serviceName, final ServiceController.Transition transition) {
+        final long seq = nextUpdater.getAndIncrement(this);
+        entries.lazySet((int) seq & mask, new Entry(seq, System.currentTimeMillis(), serviceName, transition, Thread.currentThread().getName()));
+    }
+
+    /**
+     * Get the recorded transitions, oldest first, one line each.
+     *
+     * @return the journal lines
+     */
+    List<String> getLines() {
+        final long last = next;
+        final int capacity = mask + 1;
+        final long first = Math.max(0L, last - capacity);
+        final ArrayList<String> lines = new ArrayList<String>((int) (last - first));
+        for (long seq = first; seq < last; seq ++) {
+            final Entry entry = entries.get((int) seq & mask);
+            // skip slots which were not written yet, or already overwritten by a newer entry
+            if (entry != null && entry.seq == seq) {
+                lines.add(entry.toString());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Print the recorded transitions, oldest first.
+     *
+     * @param out the stream to print to
+     * @param containerName the name of the container
+     */
+    void dump(final PrintStream out, final String containerName) {
+        final List<String> lines = getLines();
+        out.printf("Transition journal for %s (%d entries):\n", containerName, Integer.valueOf(lines.size()));
+        for (String line : lines) {
+            out.println(line);
+        }
+    }
+
+    static final class Entry {
+        private final long seq;
+        private final long time;
+        private final ServiceName serviceName;
+        private final ServiceController.Transition transition;
+        private final String threadName;
+
+        Entry(final long seq, final long time, final ServiceName serviceName, final ServiceController.Transition transition, final String threadName) {
+            this.seq = seq;
+            this.time = time;
+            this.serviceName = serviceName;
+            this.transition = transition;
+            this.threadName = threadName;
+        }
+
+        public String toString() {
+            return String.format("%tF %<tT.%<tL [%s] %s %s", new Date(time), threadName, serviceName.getCanonicalName(), transition.name());
+        }
+    }
+}
@@ -73,4 +73,13 @@ public interface ServiceContainerMXBean {
      * @return the container state, as a string
      */
     String dumpServicesToString();
+
+    /**
+     * Get the most recent service transitions recorded by the transition journal, oldest first, one per line.  The
+     * journal is only kept if the {@code jboss.msc.journal.size} system property is set to the number of transitions
+     * to keep.  That number is rounded up to the next power of two, so up to that many transitions may be returned.
+     *
+     * @return the journal lines, or an empty list if the journal is not enabled
+     */
+    List<String> queryTransitionJournal();
 }
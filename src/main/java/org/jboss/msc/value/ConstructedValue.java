@@ -36,7 +36,7 @@ import java.util.List;
  */
 public final class ConstructedValue<T> implements Value<T> {
     private final Constructor<T> constructor;
-    private final List<? extends Value<?>> parameters;
+    private final Value<?>[] parameters;
 
     /**
      * Construct a new instance.
@@ -52,7 +52,7 @@ public final class ConstructedValue<T> implements Value<T> {
             throw new IllegalArgumentException("parameters is null");
         }
         this.constructor = constructor;
-        this.parameters = parameters;
+        this.parameters = parameters.toArray(new Value<?>[parameters.size()]);
     }
 
     /** {@inheritDoc} */
@@ -22,17 +22,20 @@
 
 package org.jboss.msc.value;
 
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.jboss.msc.inject.InjectionException;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.inject.RetainingInjector;
 
 /**
- * A {@link Set} value that can have entries injected into it. The underlying set is an instance of {@link LinkedHashSet}, so
- * iteration order will be consistent.
+ * A {@link Set} value that can have entries injected into it. Like a {@link LinkedHashSet}, the set keeps the order in
+ * which entries were injected, so iteration order will be consistent.
+ * <p/>
+ * The value is an immutable snapshot which is replaced atomically on every injection and uninjection, so reading it
+ * never locks or copies, and updating it only copies a small part of the previous snapshot.
  * <p/>
  * The {@link #injector()} method is used to get an injector that can inject into the set.
  *
@@ -42,8 +45,10 @@ import org.jboss.msc.inject.RetainingInjector;
  */
 public final class InjectedSetValue<T> implements Value<Set<T>> {
 
-    private final Set<T> value = new LinkedHashSet<T>();
-    private volatile Set<T> cachedValue;
+    @SuppressWarnings("unchecked")
+    private static final AtomicReferenceFieldUpdater<InjectedSetValue, PersistentSet> valueUpdater = AtomicReferenceFieldUpdater.newUpdater(InjectedSetValue.class, PersistentSet.class, "value");
+
+    private volatile PersistentSet<T> value = PersistentSet.empty();
 
     /**
      * Construct a new instance.
@@ -53,14 +58,7 @@ public final class InjectedSetValue<T> implements Value<Set<T>> {
 
     /** {@inheritDoc} */
     public Set<T> getValue() throws IllegalStateException {
-        if (cachedValue == null) {
-            synchronized (this) {
-                if (cachedValue == null) {
-                    cachedValue = Collections.unmodifiableSet(new LinkedHashSet<T>(value));
-                }
-            }
-        }
-        return cachedValue;
+        return value;
     }
 
     /** {@inheritDoc} */
@@ -68,14 +66,20 @@ public final class InjectedSetValue<T> implements Value<Set<T>> {
         return getValue();
     }
 
-    private synchronized void addItem(T item) {
-        value.add(item);
-        cachedValue = null;
+    private void addItem(T item) {
+        PersistentSet<T> oldValue, newValue;
+        do {
+            oldValue = value;
+            newValue = oldValue.with(item);
+        } while (newValue != oldValue && ! valueUpdater.compareAndSet(this, oldValue, newValue));
     }
 
-    private synchronized void removeItem(T item) {
-        value.remove(item);
-        cachedValue = null;
+    private void removeItem(T item) {
+        PersistentSet<T> oldValue, newValue;
+        do {
+            oldValue = value;
+            newValue = oldValue.without(item);
+        } while (newValue != oldValue && ! valueUpdater.compareAndSet(this, oldValue, newValue));
     }
 
     /**
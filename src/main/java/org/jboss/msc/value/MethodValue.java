@@ -27,7 +27,8 @@ import java.lang.reflect.Method;
 import java.util.List;
 
 /**
- * A value which is produced by invoking a method.
+ * A value which is produced by invoking a method.  The target is only set up as {@link Values#thisValue()} for the
+ * invocation if one of the parameters is {@link Values#thisValue()} itself; otherwise the method is invoked directly.
  *
  * @param <T> the value type
  *
@@ -36,7 +37,11 @@ import java.util.List;
 public final class MethodValue<T> implements Value<T> {
     private final Value<Method> methodValue;
     private final Value<?> targetValue;
-    private final List<? extends Value<?>> parameters;
+    private final Value<?>[] parameters;
+    // the arguments, if every parameter is an immediate value; reused for every call since reflection only reads them
+    private final Object[] constantArguments;
+    // true if a parameter is the thread-local target value, which must then be set around the invocation
+    private final boolean contextual;
 
     /**
      * Construct a new instance.
@@ -48,18 +53,68 @@ public final class MethodValue<T> implements Value<T> {
     public MethodValue(final Value<Method> methodValue, final Value<?> targetValue, final List<? extends Value<?>> parameters) {
         this.methodValue = methodValue;
         this.targetValue = targetValue;
-        this.parameters = parameters;
+        this.parameters = parameters == null ? null : parameters.toArray(new Value<?>[parameters.size()]);
+        constantArguments = getConstantArguments(this.parameters);
+        contextual = isContextual(this.parameters);
+    }
+
+    private static boolean isContextual(final Value<?>[] parameters) {
+        if (parameters == null) {
+            return false;
+        }
+        final ThreadLocalValue<Object> thisValue = Values.thisValue();
+        for (Value<?> parameter : parameters) {
+            if (parameter == thisValue) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object[] getConstantArguments(final Value<?>[] parameters) {
+        if (parameters == null) {
+            return null;
+        }
+        for (Value<?> parameter : parameters) {
+            if (! (parameter instanceof ImmediateValue)) {
+                return null;
+            }
+        }
+        return Values.getValues(parameters);
+    }
+
+    private Object[] getArguments(final Object target) {
+        final Object[] constantArguments = this.constantArguments;
+        if (constantArguments != null) {
+            return constantArguments;
+        }
+        // the target is set as the contextual value for the method itself, but parameters referring to it are resolved directly
+        final ThreadLocalValue<Object> thisValue = Values.thisValue();
+        final Value<?>[] parameters = this.parameters;
+        final Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < arguments.length; i++) {
+            final Value<?> parameter = parameters[i];
+            arguments[i] = parameter == thisValue ? target : parameter.getValue();
+        }
+        return arguments;
     }
 
     /** {@inheritDoc} */
     @SuppressWarnings({ "unchecked" })
     public T getValue() throws IllegalStateException {
-        final ThreadLocalValue<Object> thisValue = Values.thisValue();
         final Value<?> targetValue = this.targetValue;
         try {
+            if (! contextual) {
+                final Method method = methodValue.getValue();
+                final Object target = targetValue.getValue();
+                return (T) method.invoke(target, getArguments(target));
+            }
+            final ThreadLocalValue<Object> thisValue = Values.thisValue();
             final Value<?> old = thisValue.getAndSetValue(targetValue);
             try {
-                return (T) methodValue.getValue().invoke(targetValue.getValue(), Values.getValues(parameters));
+                final Method method = methodValue.getValue();
+                final Object target = targetValue.getValue();
+                return (T) method.invoke(target, getArguments(target));
             } finally {
                 thisValue.setValue(old);
             }
@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set which keeps insertion order, and from which modified copies can be derived without copying the
+ * whole set.  Membership is kept in a hash trie, so adding or removing an element only copies the path to it; the
+ * insertion order is kept in a list of the elements, newest first, which is shared by all copies derived by adding.
+ *
+ * @param <T> the element type
+ */
+final class PersistentSet<T> extends AbstractSet<T> {
+
+    private static final PersistentSet<Object> EMPTY = new PersistentSet<Object>(null, null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * The root of the hash trie: {@code null}, a {@link Leaf} or a {@link Branch}.
+     */
+    private final Object root;
+    private final Entry<T> newest;
+    private final int size;
+    private volatile Object[] elements;
+
+    private PersistentSet(final Object root, final Entry<T> newest, final int size) {
+        this.root = root;
+        this.newest = newest;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentSet<T> empty() {
+        return (PersistentSet<T>) EMPTY;
+    }
+
+    /**
+     * Get a set with the given element added at the end.
+     *
+     * @param element the element to add
+     * @return the new set, or this set if it already contains the element
+     */
+    PersistentSet<T> with(final T element) {
+        final int hash = hash(element);
+        if (find(root, hash, element)) {
+            return this;
+        }
+        return new PersistentSet<T>(insert(root, hash, 0, element), new Entry<T>(element, newest), size + 1);
+    }
+
+    /**
+     * Get a set without the given element.  Only the elements added after it are copied.
+     *
+     * @param element the element to remove
+     * @return the new set, or this set if it does not contain the element
+     */
+    PersistentSet<T> without(final Object element) {
+        final int hash = hash(element);
+        if (! find(root, hash, element)) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+        return new PersistentSet<T>(remove(root, hash, 0, element), removeEntry(newest, element), size - 1);
+    }
+
+    public boolean contains(final Object o) {
+        return find(root, hash(o), o);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Iterator<T> iterator() {
+        final Object[] elements = getElements();
+        return new Iterator<T>() {
+            private int idx;
+
+            public boolean hasNext() {
+                return idx < elements.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (idx == elements.length) {
+                    throw new NoSuchElementException();
+                }
+                return (T) elements[idx++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private Object[] getElements() {
+        Object[] elements = this.elements;
+        if (elements == null) {
+            elements = new Object[size];
+            int i = size;
+            for (Entry<T> entry = newest; entry != null; entry = entry.next) {
+                elements[--i] = entry.element;
+            }
+            this.elements = elements;
+        }
+        return elements;
+    }
+
+    private static int hash(final Object element) {
+        if (element == null) {
+            return 0;
+        }
+        final int h = element.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static boolean find(Object node, final int hash, final Object element) {
+        int shift = 0;
+        while (node instanceof Branch) {
+            final Branch branch = (Branch) node;
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((branch.bitmap & bit) == 0) {
+                return false;
+            }
+            node = branch.children[Integer.bitCount(branch.bitmap & (bit - 1))];
+            shift += BITS;
+        }
+        for (Leaf leaf = (Leaf) node; leaf != null; leaf = leaf.next) {
+            if (leaf.hash == hash && equals(leaf.element, element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the element must not be present
+    private static Object insert(final Object node, final int hash, final int shift, final Object element) {
+        if (node == null) {
+            return new Leaf(element, hash, null);
+        }
+        if (node instanceof Leaf) {
+            final Leaf leaf = (Leaf) node;
+            if (leaf.hash == hash) {
+                return new Leaf(element, hash, leaf);
+            }
+            // distinct hashes always differ within the bits covered by the available levels
+            return insert(new Branch(1 << ((leaf.hash >>> shift) & MASK), new Object[] { leaf }), hash, shift, element);
+        }
+        final Branch branch = (Branch) node;
+        final int bit = 1 << ((hash >>> shift) & MASK);
+        final int pos = Integer.bitCount(branch.bitmap & (bit - 1));
+        final Object[] children = branch.children;
+        if ((branch.bitmap & bit) != 0) {
+            final Object[] newChildren = children.clone();
+            newChildren[pos] = insert(children[pos], hash, shift + BITS, element);
+            return new Branch(branch.bitmap, newChildren);
+        }
+        final Object[] newChildren = new Object[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, pos);
+        newChildren[pos] = new Leaf(element, hash, null);
+        System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+        return new Branch(branch.bitmap | bit, newChildren);
+    }
+
+    // the element must be present
+    private static Object remove(final Object node, final int hash, final int shift, final Object element) {
+        if (node instanceof Leaf) {
+            final Leaf leaf = (Leaf) node;
+            if (leaf.hash == hash && equals(leaf.element, element)) {
+                return leaf.next;
+            }
+            return new Leaf(leaf.element, leaf.hash, (Leaf) remove(leaf.next, hash, shift, element));
+        }
+        final Branch branch = (Branch) node;
+        final int bit = 1 << ((hash >>> shift) & MASK);
+        final int pos = Integer.bitCount(branch.bitmap & (bit - 1));
+        final Object[] children = branch.children;
+        final Object child = remove(children[pos], hash, shift + BITS, element);
+        if (child != null) {
+            if (children.length == 1 && child instanceof Leaf) {
+                // collapse a branch which has a single leaf left
+                return child;
+            }
+            final Object[] newChildren = children.clone();
+            newChildren[pos] = child;
+            return new Branch(branch.bitmap, newChildren);
+        }
+        if (children.length == 2 && children[pos ^ 1] instanceof Leaf) {
+            return children[pos ^ 1];
+        }
+        final Object[] newChildren = new Object[children.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, pos);
+        System.arraycopy(children, pos + 1, newChildren, pos, children.length - pos - 1);
+        return new Branch(branch.bitmap & ~bit, newChildren);
+    }
+
+    private static <T> Entry<T> removeEntry(final Entry<T> entry, final Object element) {
+        if (equals(entry.element, element)) {
+            return entry.next;
+        }
+        // copy the entries added after the removed one; iterative, since the list can be long
+        int count = 1;
+        Entry<T> found = entry.next;
+        while (! equals(found.element, element)) {
+            found = found.next;
+            count ++;
+        }
+        @SuppressWarnings("unchecked")
+        final Entry<T>[] newer = new Entry[count];
+        Entry<T> e = entry;
+        for (int i = 0; i < count; i ++) {
+            newer[i] = e;
+            e = e.next;
+        }
+        Entry<T> result = found.next;
+        for (int i = count - 1; i >= 0; i --) {
+            result = new Entry<T>(newer[i].element, result);
+        }
+        return result;
+    }
+
+    static final class Entry<T> {
+        private final T element;
+        private final Entry<T> next;
+
+        Entry(final T element, final Entry<T> next) {
+            this.element = element;
+            this.next = next;
+        }
+    }
+
+    static final class Leaf {
+        private final Object element;
+        private final int hash;
+        // elements with the same hash
+        private final Leaf next;
+
+        Leaf(final Object element, final int hash, final Leaf next) {
+            this.element = element;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    static final class Branch {
+        private final int bitmap;
+        private final Object[] children;
+
+        Branch(final int bitmap, final Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+}
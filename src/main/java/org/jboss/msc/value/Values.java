@@ -82,6 +82,24 @@ public final class Values {
         return getValues(i.iterator(), 0);
     }
 
+    /**
+     * Get an object array from the result of an array of values.  An empty array may be shared.
+     *
+     * @param values the values
+     * @return the values array
+     */
+    public static Object[] getValues(Value<?>[] values) {
+        final int length = values.length;
+        if (length == 0) {
+            return NONE;
+        }
+        final Object[] params = new Object[length];
+        for (int i = 0; i < length; i++) {
+            params[i] = values[i].getValue();
+        }
+        return params;
+    }
+
     /**
      * Get a typed object array from the result of an iterable series of values.
      *
@@ -206,6 +224,36 @@ public final class Values {
         return (Value<T>) value;
     }
 
+    /**
+     * Get an immediate {@code int} value.
+     *
+     * @param value the value
+     * @return an immediate value which yields {@code value} without boxing
+     */
+    public static IntValue immediateIntValue(final int value) {
+        return new ImmediateIntValue(value);
+    }
+
+    /**
+     * Get an immediate {@code long} value.
+     *
+     * @param value the value
+     * @return an immediate value which yields {@code value} without boxing
+     */
+    public static LongValue immediateLongValue(final long value) {
+        return new ImmediateLongValue(value);
+    }
+
+    /**
+     * Get an immediate {@code boolean} value.
+     *
+     * @param value the value
+     * @return an immediate value which yields {@code value} without boxing
+     */
+    public static BooleanValue immediateBooleanValue(final boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
     /**
      * The special value representing {@code this} (the object being invoked upon).
      *
@@ -224,4 +272,55 @@ public final class Values {
         return INJECTED;
     }
 
+    private static final BooleanValue TRUE = new ImmediateBooleanValue(true);
+
+    private static final BooleanValue FALSE = new ImmediateBooleanValue(false);
+
+    private static final class ImmediateIntValue implements IntValue {
+        private final int value;
+
+        ImmediateIntValue(final int value) {
+            this.value = value;
+        }
+
+        public int getIntValue() {
+            return value;
+        }
+
+        public Integer getValue() {
+            return Integer.valueOf(value);
+        }
+    }
+
+    private static final class ImmediateLongValue implements LongValue {
+        private final long value;
+
+        ImmediateLongValue(final long value) {
+            this.value = value;
+        }
+
+        public long getLongValue() {
+            return value;
+        }
+
+        public Long getValue() {
+            return Long.valueOf(value);
+        }
+    }
+
+    private static final class ImmediateBooleanValue implements BooleanValue {
+        private final boolean value;
+
+        ImmediateBooleanValue(final boolean value) {
+            this.value = value;
+        }
+
+        public boolean getBooleanValue() {
+            return value;
+        }
+
+        public Boolean getValue() {
+            return Boolean.valueOf(value);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.bench;
+
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceBuilder;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.util.LatchedFinishListener;
+
+/**
+ * Measure the retained heap per installed service in a large container, where most services have a few dependents
+ * and no children.  Service {@code i} depends on the services {@code i - 1} down to {@code i - dependencies}.
+ * <p>
+ * Arguments: {@code <services> [<dependencies>]}
+ */
+public class BootFootprintBench {
+
+    public static void main(String[] args) throws Exception {
+        final int services = Integer.parseInt(args[0]);
+        final int dependencies = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final ServiceName[] names = new ServiceName[services];
+        for (int i = 0; i < services; i++) {
+            names[i] = ServiceName.of("test" + i);
+        }
+
+        final long before = usedHeap();
+        final ServiceContainer container = ServiceContainer.Factory.create();
+        final LatchedFinishListener listener = new LatchedFinishListener();
+        container.addListener(listener);
+        for (int i = 0; i < services; i++) {
+            final ServiceBuilder<Void> builder = container.addService(names[i], Service.NULL);
+            for (int j = Math.max(0, i - dependencies); j < i; j++) {
+                builder.addDependency(names[j]);
+            }
+            builder.install();
+        }
+        listener.await();
+        final long after = usedHeap();
+
+        System.out.println(services + " services, " + dependencies + " dependencies each : " + (after - before) / services + " bytes per service");
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // collect until the figure settles
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50L);
+            final long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
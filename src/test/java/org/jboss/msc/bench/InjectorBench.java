@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.bench;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.msc.inject.FieldInjector;
+import org.jboss.msc.inject.Injector;
+import org.jboss.msc.inject.Injectors;
+import org.jboss.msc.inject.MethodInjector;
+import org.jboss.msc.inject.SetMethodInjector;
+import org.jboss.msc.value.ConstructedValue;
+import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
+
+/**
+ * Compare the reflective injectors and values with the plain reflective calls they wrap, and with the generated
+ * injectors.
+ * <p>
+ * Arguments: {@code <iterations>}
+ */
+public class InjectorBench {
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = Integer.parseInt(args[0]);
+        final Target target = new Target();
+        final Value<Target> targetValue = Values.immediateValue(target);
+        final Field field = Target.class.getField("field");
+        final Method setter = Target.class.getMethod("setField", Object.class);
+        final Method twoArgs = Target.class.getMethod("setBoth", Object.class, Object.class);
+        final Constructor<Target> constructor = Target.class.getConstructor(Object.class);
+        final List<Value<?>> parameters = Arrays.<Value<?>>asList(Values.injectedValue(), Values.immediateValue("x"));
+        final List<Value<?>> constructorParameters = Arrays.<Value<?>>asList(Values.immediateValue("x"));
+
+        final Injector<Object> fieldInjector = new FieldInjector<Object>(targetValue, field);
+        final Injector<Object> setInjector = SetMethodInjector.create(targetValue, setter);
+        final Injector<Object> generatedFieldInjector = Injectors.fieldInjector(targetValue, field);
+        final Injector<Object> generatedSetInjector = Injectors.setMethodInjector(targetValue, setter);
+        final Injector<Object> methodInjector = new MethodInjector<Object>(twoArgs, targetValue, Values.nullValue(), parameters);
+        final Value<Target> constructedValue = new ConstructedValue<Target>(constructor, constructorParameters);
+
+        for (int round = 0; round < 5; round ++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                field.set(target, target);
+            }
+            report("Field.set", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                fieldInjector.inject(target);
+            }
+            report("FieldInjector", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                generatedFieldInjector.inject(target);
+            }
+            report("generated field", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                setter.invoke(target, target);
+            }
+            report("Method.invoke (1)", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                setInjector.inject(target);
+            }
+            report("SetMethodInjector", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                generatedSetInjector.inject(target);
+            }
+            report("generated setter", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                twoArgs.invoke(target, target, "x");
+            }
+            report("Method.invoke (2)", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                methodInjector.inject(target);
+            }
+            report("MethodInjector", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                target.field = constructor.newInstance("x");
+            }
+            report("Constructor.newInstance", start, iterations);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i ++) {
+                target.field = constructedValue.getValue();
+            }
+            report("ConstructedValue", start, iterations);
+            System.out.println();
+        }
+    }
+
+    private static void report(final String name, final long start, final int iterations) {
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%-24s %8.2f ns/op%n", name, Double.valueOf((double) elapsed / iterations));
+    }
+
+    public static final class Target {
+        public Object field;
+
+        public Target() {
+        }
+
+        public Target(final Object field) {
+            this.field = field;
+        }
+
+        public void setField(final Object field) {
+            this.field = field;
+        }
+
+        public void setBoth(final Object field, final Object other) {
+            this.field = field;
+        }
+    }
+}
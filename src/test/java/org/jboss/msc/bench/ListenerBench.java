@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.bench;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.msc.service.AbstractServiceListener;
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.TimingServiceListener;
+
+/**
+ * Measure the boot time of independent services with many container-wide listeners, all of which are loaded by the
+ * same class loader as the container, as monitoring listeners typically are.
+ * <p>
+ * Arguments: {@code <service count> <listener count>}
+ */
+public class ListenerBench {
+
+    public static void main(String[] args) throws Exception {
+        final int totalServiceDefinitions = Integer.parseInt(args[0]);
+        final int totalListeners = Integer.parseInt(args[1]);
+
+        final ServiceContainer container = ServiceContainer.Factory.create();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final TimingServiceListener listener = new TimingServiceListener(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        });
+        container.addListener(listener);
+        for (int i = 0; i < totalListeners; i++) {
+            container.addListener(new CountingListener());
+        }
+
+        for (int i = 0; i < totalServiceDefinitions; i++) {
+            container.addService(ServiceName.of(("test" + i).intern()), Service.NULL).install();
+        }
+        listener.finishBatch();
+
+        latch.await();
+        System.out.println(totalServiceDefinitions + " x " + totalListeners + " : " + listener.getElapsedTime() / 1000.0);
+        container.shutdown();
+    }
+
+    static final class CountingListener extends AbstractServiceListener<Object> {
+        private volatile int count;
+
+        public void transition(final ServiceController<?> controller, final ServiceController.Transition transition) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.inject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
+import org.junit.Test;
+
+/**
+ * Test for the generated injectors of {@link Injectors}.
+ */
+public class GeneratedInjectorTestCase {
+
+    @Test
+    public void publicField() throws Exception {
+        final Target target = new Target();
+        final Injector<String> injector = Injectors.fieldInjector(Values.immediateValue(target), Target.class.getField("name"));
+        assertTrue(injector instanceof GeneratedInjector);
+        injector.inject("injected");
+        assertEquals("injected", target.name);
+        injector.uninject();
+        assertNull(target.name);
+    }
+
+    @Test
+    public void publicStaticField() throws Exception {
+        final Injector<Object> injector = Injectors.fieldInjector(Values.nullValue(), Target.class.getField("shared"));
+        assertTrue(injector instanceof GeneratedInjector);
+        final Object value = new Object();
+        injector.inject(value);
+        assertSame(value, Target.shared);
+        injector.uninject();
+        assertNull(Target.shared);
+    }
+
+    @Test
+    public void wrongType() throws Exception {
+        final Target target = new Target();
+        final Injector<Object> injector = Injectors.fieldInjector(Values.immediateValue(target), Target.class.getField("name"));
+        try {
+            injector.inject(Integer.valueOf(1));
+            fail("InjectionException expected");
+        } catch (InjectionException expected) {
+        }
+        assertNull(target.name);
+    }
+
+    @Test
+    public void setters() throws Exception {
+        final Target target = new Target();
+        final Value<Target> targetValue = Values.immediateValue(target);
+        final Injector<List<String>> injector = Injectors.setMethodInjector(targetValue, Target.class.getMethod("setList", List.class));
+        assertTrue(injector instanceof GeneratedInjector);
+        final List<String> list = Collections.singletonList("a");
+        injector.inject(list);
+        assertSame(list, target.list);
+        injector.uninject();
+        assertNull(target.list);
+
+        final Injector<String[]> arrayInjector = Injectors.setMethodInjector(targetValue, Target.class.getMethod("setArray", String[].class));
+        assertTrue(arrayInjector instanceof GeneratedInjector);
+        final String[] array = { "a" };
+        arrayInjector.inject(array);
+        assertSame(array, target.array);
+        // the returned value of a builder-style setter is discarded
+        final Injector<String> chained = Injectors.setMethodInjector(targetValue, Target.class.getMethod("withName", String.class));
+        assertTrue(chained instanceof GeneratedInjector);
+        chained.inject("chained");
+        assertEquals("chained", target.name);
+    }
+
+    @Test
+    public void setterFailure() throws Exception {
+        final Injector<String> injector = Injectors.setMethodInjector(Values.immediateValue(new Target()), Target.class.getMethod("setFailing", String.class));
+        try {
+            injector.inject("x");
+            fail("InjectionException expected");
+        } catch (InjectionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        // failures on uninjection are only logged
+        injector.uninject();
+    }
+
+    @Test
+    public void fallback() throws Exception {
+        final Value<Target> target = Values.immediateValue(new Target());
+        assertTrue(Injectors.fieldInjector(target, Target.class.getDeclaredField("hidden")) instanceof FieldInjector);
+        assertTrue(Injectors.fieldInjector(target, Target.class.getField("count")) instanceof FieldInjector);
+        assertTrue(Injectors.fieldInjector(target, Target.class.getField("constant")) instanceof FieldInjector);
+        assertTrue(Injectors.setMethodInjector(target, Target.class.getMethod("setCount", int.class)) instanceof SetMethodInjector);
+        assertTrue(Injectors.fieldInjector(Values.immediateValue(new Hidden()), Hidden.class.getField("name")) instanceof FieldInjector);
+    }
+
+    public static final class Target {
+        public static Object shared;
+        public final String constant = "constant";
+        public String name;
+        public int count;
+        public List<String> list;
+        public String[] array;
+        @SuppressWarnings("unused")
+        private String hidden;
+
+        public void setList(final List<String> list) {
+            this.list = list;
+        }
+
+        public void setArray(final String[] array) {
+            this.array = array;
+        }
+
+        public Target withName(final String name) {
+            this.name = name;
+            return this;
+        }
+
+        public void setCount(final int count) {
+            this.count = count;
+        }
+
+        public void setFailing(final String value) {
+            throw new IllegalStateException();
+        }
+    }
+
+    static final class Hidden {
+        public String name;
+    }
+}
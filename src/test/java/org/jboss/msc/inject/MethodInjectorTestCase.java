@@ -65,14 +65,15 @@ public class MethodInjectorTestCase {
     public void publicMethod() throws Exception {
         arguments.add(new ImmediateValue<Boolean>(false));
         final Injector<String> injector = new MethodInjector<String>(AnotherService.class.getMethod("discoverDefinedBy", boolean.class), target, Values.immediateValue("String"), arguments);
-        Values.thisValue().setValue(Values.immediateValue(this));
+        // no parameter refers to the contextual values, so the method sees the caller's values
+        Values.thisValue().setValue(target);
         Values.injectedValue().setValue(Values.immediateValue("injected"));
         injector.inject("another String");
-        assertSame(this, Values.thisValue().getValue());
+        assertSame(target.getValue(), Values.thisValue().getValue());
         assertEquals("injected", Values.injectedValue().getValue());
         assertEquals("JBoss", AnotherService.getLastDiscovered());
         injector.uninject();
-        assertSame(this, Values.thisValue().getValue());
+        assertSame(target.getValue(), Values.thisValue().getValue());
         assertEquals("injected", Values.injectedValue().getValue());
         assertEquals("JBoss", AnotherService.getLastDiscovered());
     }
@@ -81,14 +82,14 @@ public class MethodInjectorTestCase {
     public void publicStaticMethod() throws Exception {
         final Method method = AnotherService.class.getMethod("discoverDefinedBy");
         final Injector<Void> injector = new MethodInjector<Void>(method, target, Values.<Object>nullValue(), arguments);
-        Values.thisValue().setValue(Values.immediateValue(this));
+        Values.thisValue().setValue(target);
         Values.injectedValue().setValue(Values.immediateValue("injected"));
         injector.inject(null);
-        assertSame(this, Values.thisValue().getValue());
+        assertSame(target.getValue(), Values.thisValue().getValue());
         assertEquals("injected", Values.injectedValue().getValue());
         assertEquals("JBoss", AnotherService.getLastDiscovered());
         injector.uninject();
-        assertSame(this, Values.thisValue().getValue());
+        assertSame(target.getValue(), Values.thisValue().getValue());
         assertEquals("injected", Values.injectedValue().getValue());
         assertEquals("JBoss", AnotherService.getLastDiscovered());
     }
@@ -103,11 +104,12 @@ public class MethodInjectorTestCase {
         injector.inject("another target");
         assertSame(this, Values.thisValue().getValue());
         assertEquals("injected", Values.injectedValue().getValue());
-        assertEquals("another target", targetWrapper.getTarget());
+        assertEquals("injected", targetWrapper.getTarget());
+        Values.injectedValue().setValue(Values.immediateValue("uninjected"));
         injector.uninject();
         assertSame(this, Values.thisValue().getValue());
-        assertEquals("injected", Values.injectedValue().getValue());
-        assertEquals("target", targetWrapper.getTarget());
+        assertEquals("uninjected", Values.injectedValue().getValue());
+        assertEquals("uninjected", targetWrapper.getTarget());
     }
 
     @Test
@@ -116,18 +118,20 @@ public class MethodInjectorTestCase {
         final Method method = TargetWrapper.class.getMethod("readTarget");
         final Injector<String> injector = new MethodInjector<String>(method, Values.immediateValue(targetWrapper), Values.nullValue(), arguments);
         Values.thisValue().setValue(Values.immediateValue(this));
-        Values.injectedValue().setValue(Values.immediateValue("injected"));
+        Values.injectedValue().setValue(Values.nullValue());
         injector.uninject();
         assertSame(this, Values.thisValue().getValue());
-        assertEquals("injected", Values.injectedValue().getValue());
+        assertNull(Values.injectedValue().getValue());
         assertNull(targetWrapper.getTarget());
+        Values.injectedValue().setValue(Values.immediateValue("injected"));
         injector.inject("another target");
         assertSame(this, Values.thisValue().getValue());
         assertEquals("injected", Values.injectedValue().getValue());
-        assertEquals("another target", targetWrapper.getTarget());
+        assertEquals("injected", targetWrapper.getTarget());
+        Values.injectedValue().setValue(Values.nullValue());
         injector.uninject();
         assertSame(this, Values.thisValue().getValue());
-        assertEquals("injected", Values.injectedValue().getValue());
+        assertNull(Values.injectedValue().getValue());
         assertNull(targetWrapper.getTarget());
     }
 
@@ -209,4 +213,42 @@ public class MethodInjectorTestCase {
             fail("InjectionException expected");
         } catch (InjectionException e) {}
     }
+
+    @Test
+    public void contextualParameters() throws Exception {
+        final Recorder recorder = new Recorder();
+        final Method method = Recorder.class.getMethod("record", Object.class, Object.class, Object.class);
+        final List<Value<?>> parameters = new ArrayList<Value<?>>();
+        parameters.add(Values.injectedValue());
+        parameters.add(Values.thisValue());
+        parameters.add(Values.immediateValue("constant"));
+        final Injector<String> injector = new MethodInjector<String>(method, Values.immediateValue(recorder), Values.immediateValue("uninjected"), parameters);
+        Values.thisValue().setValue(Values.immediateValue(this));
+        Values.injectedValue().setValue(Values.immediateValue("injected"));
+        injector.inject("value");
+        assertSame(this, Values.thisValue().getValue());
+        assertEquals("injected", Values.injectedValue().getValue());
+        assertEquals("value", recorder.injected);
+        assertSame(recorder, recorder.self);
+        assertEquals("constant", recorder.constant);
+        // the contextual values remain visible to the method itself
+        assertEquals("value", recorder.contextInjected);
+        injector.uninject();
+        assertEquals("uninjected", recorder.injected);
+        assertEquals("uninjected", recorder.contextInjected);
+    }
+
+    public static final class Recorder {
+        Object injected;
+        Object self;
+        Object constant;
+        Object contextInjected;
+
+        public void record(final Object injected, final Object self, final Object constant) {
+            this.injected = injected;
+            this.self = self;
+            this.constant = constant;
+            contextInjected = Values.injectedValue().getValue();
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.inject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
+import org.junit.Test;
+
+/**
+ * Test for the primitive injectors of {@link Injectors}.
+ */
+public class PrimitiveInjectorTestCase {
+
+    @Test
+    public void intField() throws Exception {
+        final Target target = new Target();
+        final IntInjector injector = Injectors.intFieldInjector(Values.immediateValue(target), Target.class.getField("port"));
+        assertTrue(injector instanceof GeneratedInjector.OfInt);
+        injector.injectInt(8080);
+        assertEquals(8080, target.port);
+        injector.inject(Integer.valueOf(8443));
+        assertEquals(8443, target.port);
+        injector.uninject();
+        assertEquals(0, target.port);
+    }
+
+    @Test
+    public void longField() throws Exception {
+        final Target target = new Target();
+        final LongInjector injector = Injectors.longFieldInjector(Values.immediateValue(target), Target.class.getField("timeout"));
+        assertTrue(injector instanceof GeneratedInjector.OfLong);
+        injector.injectLong(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, target.timeout);
+        injector.uninject();
+        assertEquals(0L, target.timeout);
+    }
+
+    @Test
+    public void booleanStaticField() throws Exception {
+        final BooleanInjector injector = Injectors.booleanFieldInjector(Values.nullValue(), Target.class.getField("enabled"));
+        assertTrue(injector instanceof GeneratedInjector.OfBoolean);
+        injector.injectBoolean(true);
+        assertTrue(Target.enabled);
+        injector.uninject();
+        assertFalse(Target.enabled);
+    }
+
+    @Test
+    public void setters() throws Exception {
+        final Target target = new Target();
+        final Value<Target> targetValue = Values.immediateValue(target);
+        final IntInjector intInjector = Injectors.intSetMethodInjector(targetValue, Target.class.getMethod("setPort", int.class));
+        assertTrue(intInjector instanceof GeneratedInjector.OfInt);
+        intInjector.injectInt(9990);
+        assertEquals(9990, target.port);
+        intInjector.uninject();
+        assertEquals(0, target.port);
+
+        // the returned value of a builder-style setter is discarded, even when it is wide
+        final LongInjector longInjector = Injectors.longSetMethodInjector(targetValue, Target.class.getMethod("swapTimeout", long.class));
+        assertTrue(longInjector instanceof GeneratedInjector.OfLong);
+        longInjector.injectLong(30L);
+        assertEquals(30L, target.timeout);
+    }
+
+    @Test
+    public void nullValue() throws Exception {
+        final Target target = new Target();
+        final IntInjector injector = Injectors.intFieldInjector(Values.immediateValue(target), Target.class.getField("port"));
+        try {
+            injector.inject(null);
+            fail("InjectionException expected");
+        } catch (InjectionException expected) {
+        }
+        assertEquals(0, target.port);
+    }
+
+    @Test
+    public void fallback() throws Exception {
+        final Target target = new Target();
+        final Value<Target> targetValue = Values.immediateValue(target);
+        final Field field = Target.class.getDeclaredField("hidden");
+        field.setAccessible(true);
+        final IntInjector hidden = Injectors.intFieldInjector(targetValue, field);
+        assertFalse(hidden instanceof GeneratedInjector.OfInt);
+        hidden.injectInt(5);
+        assertEquals(5, target.hidden);
+        hidden.uninject();
+        assertEquals(0, target.hidden);
+
+        // a long injector into an int member is left to the reflective injectors
+        final LongInjector mismatched = Injectors.longSetMethodInjector(targetValue, Target.class.getMethod("setPort", int.class));
+        assertFalse(mismatched instanceof GeneratedInjector.OfLong);
+
+        final Method method = Target.class.getDeclaredMethod("setHiddenEnabled", boolean.class);
+        method.setAccessible(true);
+        final BooleanInjector setter = Injectors.booleanSetMethodInjector(Values.nullValue(), method);
+        assertFalse(setter instanceof GeneratedInjector.OfBoolean);
+        setter.injectBoolean(true);
+        assertTrue(Target.hiddenEnabled);
+        setter.uninject();
+        assertFalse(Target.hiddenEnabled);
+    }
+
+    public static final class Target {
+        public static boolean enabled;
+        private static boolean hiddenEnabled;
+        public int port;
+        public long timeout;
+        private int hidden;
+
+        public void setPort(final int port) {
+            this.port = port;
+        }
+
+        public long swapTimeout(final long timeout) {
+            final long old = this.timeout;
+            this.timeout = timeout;
+            return old;
+        }
+
+        @SuppressWarnings("unused")
+        private static void setHiddenEnabled(final boolean enabled) {
+            hiddenEnabled = enabled;
+        }
+    }
+}
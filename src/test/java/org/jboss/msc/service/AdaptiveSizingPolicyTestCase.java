@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link AdaptiveSizingPolicy} and the application of sizing policies by the container.
+ */
+public class AdaptiveSizingPolicyTestCase {
+
+    @Test
+    public void growsWithBlockingRatio() {
+        final AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy(1, 64);
+        // purely computational tasks need no more threads than processors
+        assertEquals(4, policy.getPoolSize(new TestStatistics(4, 100, 4, 0.0, 4)));
+        // tasks waiting 75% of the time keep four times as many threads busy
+        assertEquals(16, policy.getPoolSize(new TestStatistics(4, 100, 4, 0.75, 4)));
+        // growth is bounded by the queued work
+        assertEquals(6, policy.getPoolSize(new TestStatistics(4, 2, 4, 0.75, 4)));
+        // and by the maximum
+        assertEquals(64, policy.getPoolSize(new TestStatistics(4, 1000, 4, 1.0, 8)));
+    }
+
+    @Test
+    public void shrinksWhenIdle() {
+        final AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy(2, 64);
+        assertEquals(7, policy.getPoolSize(new TestStatistics(8, 0, 0, 0.0, 4)));
+        assertEquals(2, policy.getPoolSize(new TestStatistics(2, 0, 0, 0.0, 4)));
+        assertEquals(5, policy.getPoolSize(new TestStatistics(5, 0, 5, 0.0, 4)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalBounds() {
+        new AdaptiveSizingPolicy(4, 2);
+    }
+
+    @Test
+    public void containerAppliesPolicy() throws Exception {
+        final CountDownLatch sampled = new CountDownLatch(2);
+        final ServiceContainerImpl container = (ServiceContainerImpl) ServiceContainer.Factory.create(null, new ThreadPoolSizingPolicy() {
+            public int getInitialPoolSize() {
+                return 1;
+            }
+
+            public int getPoolSize(final Statistics statistics) {
+                sampled.countDown();
+                return 3;
+            }
+        });
+        try {
+            assertEquals(1, container.getExecutor().getCorePoolSize());
+            sampled.await(10L, TimeUnit.SECONDS);
+            for (int i = 0; i < 100 && container.getExecutor().getCorePoolSize() != 3; i ++) {
+                Thread.sleep(20L);
+            }
+            assertEquals(3, container.getExecutor().getCorePoolSize());
+            assertEquals(3, container.getExecutor().getMaximumPoolSize());
+        } finally {
+            container.shutdown();
+            container.awaitTermination();
+        }
+    }
+
+    private static final class TestStatistics implements ThreadPoolSizingPolicy.Statistics {
+        private final int poolSize;
+        private final int queueSize;
+        private final int activeCount;
+        private final double blockingRatio;
+        private final int availableProcessors;
+
+        TestStatistics(final int poolSize, final int queueSize, final int activeCount, final double blockingRatio, final int availableProcessors) {
+            this.poolSize = poolSize;
+            this.queueSize = queueSize;
+            this.activeCount = activeCount;
+            this.blockingRatio = blockingRatio;
+            this.availableProcessors = availableProcessors;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public long getCompletedTasks() {
+            return 0L;
+        }
+
+        public double getBlockingRatio() {
+            return blockingRatio;
+        }
+
+        public int getAvailableProcessors() {
+            return availableProcessors;
+        }
+    }
+}
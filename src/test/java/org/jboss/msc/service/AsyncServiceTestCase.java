@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link AsyncService}.
+ */
+public class AsyncServiceTestCase {
+
+    private ServiceContainer container;
+
+    @Before
+    public void setUp() {
+        container = ServiceContainer.Factory.create(1, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void pendingStartDoesNotHoldThread() throws Exception {
+        final TestAsyncService service = new TestAsyncService();
+        final ServiceController<?> controller = container.addService(ServiceName.of("async"), service).install();
+        assertTrue(service.startCalled.await(10L, TimeUnit.SECONDS));
+        // the only container thread is free, so another service starts while the first one is pending
+        final ServiceController<?> other = container.addService(ServiceName.of("other"), Service.NULL).install();
+        awaitState(other, ServiceController.State.UP);
+        assertEquals(ServiceController.State.STARTING, controller.getState());
+        service.start.complete();
+        awaitState(controller, ServiceController.State.UP);
+        controller.setMode(ServiceController.Mode.NEVER);
+        assertTrue(service.stopCalled.await(10L, TimeUnit.SECONDS));
+        assertEquals(ServiceController.State.STOPPING, controller.getState());
+        service.stop.complete();
+        awaitState(controller, ServiceController.State.DOWN);
+    }
+
+    @Test
+    public void asynchronousFailure() throws Exception {
+        final TestAsyncService service = new TestAsyncService();
+        final ServiceController<?> controller = container.addService(ServiceName.of("async"), service).install();
+        assertTrue(service.startCalled.await(10L, TimeUnit.SECONDS));
+        service.start.failed(new StartException("expected"));
+        awaitState(controller, ServiceController.State.START_FAILED);
+        assertNotNull(controller.getStartException());
+    }
+
+    @Test
+    public void asynchronousFailureIsWrapped() throws Exception {
+        final TestAsyncService service = new TestAsyncService();
+        final ServiceController<?> controller = container.addService(ServiceName.of("async"), service).install();
+        assertTrue(service.startCalled.await(10L, TimeUnit.SECONDS));
+        final IOException failure = new IOException("expected");
+        service.start.failed(failure);
+        awaitState(controller, ServiceController.State.START_FAILED);
+        assertSame(failure, controller.getStartException().getCause());
+    }
+
+    @Test
+    public void failedStopStillStops() throws Exception {
+        final TestAsyncService service = new TestAsyncService();
+        final ServiceController<?> controller = container.addService(ServiceName.of("async"), service).install();
+        assertTrue(service.startCalled.await(10L, TimeUnit.SECONDS));
+        service.start.complete();
+        awaitState(controller, ServiceController.State.UP);
+        controller.setMode(ServiceController.Mode.NEVER);
+        assertTrue(service.stopCalled.await(10L, TimeUnit.SECONDS));
+        service.stop.failed(new IOException("expected"));
+        awaitState(controller, ServiceController.State.DOWN);
+    }
+
+    @Test
+    public void completedStartIsSynchronous() throws Exception {
+        final ServiceController<?> controller = container.addService(ServiceName.of("sync"), new AsyncService<Void>() {
+            protected LifecycleCompletion startAsync(final StartContext context) {
+                return LifecycleCompletion.completed();
+            }
+
+            protected LifecycleCompletion stopAsync(final StopContext context) {
+                return null;
+            }
+
+            public Void getValue() {
+                return null;
+            }
+        }).install();
+        awaitState(controller, ServiceController.State.UP);
+        final ServiceController<?> failing = container.addService(ServiceName.of("failing"), new AsyncService<Void>() {
+            protected LifecycleCompletion startAsync(final StartContext context) {
+                return LifecycleCompletion.failedWith(new StartException("expected"));
+            }
+
+            protected LifecycleCompletion stopAsync(final StopContext context) {
+                return null;
+            }
+
+            public Void getValue() {
+                return null;
+            }
+        }).install();
+        awaitState(failing, ServiceController.State.START_FAILED);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void completeTwice() {
+        final LifecycleCompletion completion = new LifecycleCompletion();
+        completion.complete();
+        assertTrue(completion.isDone());
+        completion.complete();
+    }
+
+    private static void awaitState(final ServiceController<?> controller, final ServiceController.State state) throws InterruptedException {
+        for (int i = 0; i < 200 && controller.getState() != state; i ++) {
+            Thread.sleep(25L);
+        }
+        assertEquals(state, controller.getState());
+    }
+
+    private static final class TestAsyncService extends AsyncService<Void> {
+        final LifecycleCompletion start = new LifecycleCompletion();
+        final LifecycleCompletion stop = new LifecycleCompletion();
+        final CountDownLatch startCalled = new CountDownLatch(1);
+        final CountDownLatch stopCalled = new CountDownLatch(1);
+
+        protected LifecycleCompletion startAsync(final StartContext context) {
+            startCalled.countDown();
+            return start;
+        }
+
+        protected LifecycleCompletion stopAsync(final StopContext context) {
+            stopCalled.countDown();
+            return stop;
+        }
+
+        public Void getValue() {
+            return null;
+        }
+    }
+}
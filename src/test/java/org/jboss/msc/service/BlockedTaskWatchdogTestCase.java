@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link BlockedTaskWatchdog}.
+ */
+public class BlockedTaskWatchdogTestCase {
+
+    private ServiceContainer container;
+
+    @Before
+    public void setUp() {
+        System.setProperty("jboss.msc.watchdog.threshold", "50");
+        System.setProperty("jboss.msc.watchdog.expand", "true");
+        // a single thread: without compensation, the second service could never start
+        container = ServiceContainer.Factory.create(1, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty("jboss.msc.watchdog.threshold");
+        System.clearProperty("jboss.msc.watchdog.expand");
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void blockedStartIsCompensated() throws Exception {
+        final CountDownLatch otherStarted = new CountDownLatch(1);
+        final BlockingService blocking = new BlockingService(otherStarted);
+        container.addService(ServiceName.of("blocking"), blocking).install();
+        assertTrue(blocking.entered.await(10L, TimeUnit.SECONDS));
+        container.addService(ServiceName.of("other"), new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                otherStarted.countDown();
+            }
+        }).install();
+        assertTrue(blocking.released.await(10L, TimeUnit.SECONDS));
+        assertNull(blocking.failure);
+        final ServiceController<?> controller = container.getRequiredService(ServiceName.of("blocking"));
+        for (int i = 0; i < 100 && controller.getState() != ServiceController.State.UP; i ++) {
+            Thread.sleep(50L);
+        }
+        assertEquals(ServiceController.State.UP, controller.getState());
+    }
+
+    @Test
+    public void watchdogDisabledByDefault() throws Exception {
+        System.clearProperty("jboss.msc.watchdog.threshold");
+        final ServiceContainerImpl other = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        try {
+            assertNull(other.getWatchdog());
+            assertNotNull(((ServiceContainerImpl) container).getWatchdog());
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidThresholdDisablesWatchdog() throws Exception {
+        System.setProperty("jboss.msc.watchdog.threshold", "50ms");
+        final ServiceContainerImpl other = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        try {
+            assertNull(other.getWatchdog());
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    private static final class BlockingService extends AbstractService<Void> {
+        private final CountDownLatch otherStarted;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        BlockingService(final CountDownLatch otherStarted) {
+            this.otherStarted = otherStarted;
+        }
+
+        public void start(final StartContext context) throws StartException {
+            entered.countDown();
+            try {
+                if (! otherStarted.await(10L, TimeUnit.SECONDS)) {
+                    failure = new IllegalStateException("Other service never started");
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+            }
+            released.countDown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link ServiceContainer#setMode(java.util.Collection, ServiceController.Mode)} and
+ * {@link ServiceContainer#setModeByPrefix(ServiceName, ServiceController.Mode)}.
+ */
+public class BulkModeTestCase {
+
+    private static final ServiceName DEPLOYMENT = ServiceName.of("deployment");
+    private static final ServiceName OTHER = ServiceName.of("other");
+    private static final int COUNT = 200;
+
+    private ServiceContainer container;
+    private final List<ServiceName> names = new ArrayList<ServiceName>();
+
+    @Before
+    public void setUp() throws Exception {
+        container = ServiceContainer.Factory.create();
+        ServiceName previous = null;
+        for (int i = 0; i < COUNT; i ++) {
+            final ServiceName name = DEPLOYMENT.append("service" + i);
+            final ServiceBuilder<Void> builder = container.addService(name, Service.NULL);
+            if (previous != null && i % 2 == 0) {
+                builder.addDependency(previous);
+            }
+            builder.install();
+            names.add(name);
+            previous = name;
+        }
+        container.addService(OTHER, Service.NULL).install();
+        awaitState(names, ServiceController.State.UP);
+        awaitState(Arrays.asList(OTHER), ServiceController.State.UP);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void modeByPrefix() throws Exception {
+        assertEquals(COUNT, container.setModeByPrefix(DEPLOYMENT, ServiceController.Mode.NEVER));
+        awaitState(names, ServiceController.State.DOWN);
+        for (ServiceName name : names) {
+            assertEquals(ServiceController.Mode.NEVER, container.getRequiredService(name).getMode());
+        }
+        assertEquals(ServiceController.State.UP, container.getRequiredService(OTHER).getState());
+        assertEquals(COUNT, container.setModeByPrefix(DEPLOYMENT, ServiceController.Mode.ACTIVE));
+        awaitState(names, ServiceController.State.UP);
+    }
+
+    @Test
+    public void modeByCollection() throws Exception {
+        final List<ServiceName> half = names.subList(0, COUNT / 2);
+        container.setMode(half, ServiceController.Mode.NEVER);
+        awaitState(half, ServiceController.State.DOWN);
+        container.setMode(half, ServiceController.Mode.ACTIVE);
+        awaitState(names, ServiceController.State.UP);
+    }
+
+    @Test
+    public void missingServiceChangesNothing() throws Exception {
+        try {
+            container.setMode(Arrays.asList(names.get(0), ServiceName.of("missing")), ServiceController.Mode.NEVER);
+            fail("Expected ServiceNotFoundException");
+        } catch (ServiceNotFoundException expected) {
+        }
+        assertEquals(ServiceController.Mode.ACTIVE, container.getRequiredService(names.get(0)).getMode());
+    }
+
+    private void awaitState(final List<ServiceName> names, final ServiceController.State state) throws InterruptedException {
+        for (ServiceName name : names) {
+            final ServiceController<?> controller = container.getRequiredService(name);
+            for (int i = 0; i < 200 && controller.getState() != state; i ++) {
+                Thread.sleep(25L);
+            }
+            assertEquals(name.toString(), state, controller.getState());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link GroupedServiceBuilder#setConcurrencyGroup(String)} and
+ * {@link ServiceContainer#setConcurrencyLimit(String, int)}.
+ */
+public class ConcurrencyGroupTestCase {
+
+    private ServiceContainer container;
+
+    @Before
+    public void setUp() {
+        container = ServiceContainer.Factory.create(8, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void startsAreLimited() throws Exception {
+        container.setConcurrencyLimit("db", 2);
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final CountDownLatch ungroupedStarted = new CountDownLatch(1);
+        final int count = 6;
+        final ServiceController<?>[] controllers = new ServiceController<?>[count];
+        for (int i = 0; i < count; i ++) {
+            controllers[i] = grouped(container.addService(ServiceName.of("db", Integer.toString(i)), new AbstractService<Void>() {
+                public void start(final StartContext context) throws StartException {
+                    final int running = current.incrementAndGet();
+                    int old;
+                    while ((old = max.get()) < running && ! max.compareAndSet(old, running));
+                    try {
+                        // groupless services are not held back by the group
+                        ungroupedStarted.await(10L, TimeUnit.SECONDS);
+                        Thread.sleep(20L);
+                    } catch (InterruptedException e) {
+                        throw new StartException(e);
+                    } finally {
+                        current.decrementAndGet();
+                    }
+                }
+            })).setConcurrencyGroup("db").install();
+        }
+        container.addService(ServiceName.of("ungrouped"), new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                ungroupedStarted.countDown();
+            }
+        }).install();
+        for (ServiceController<?> controller : controllers) {
+            awaitState(controller, ServiceController.State.UP);
+        }
+        assertEquals(2, max.get());
+    }
+
+    @Test
+    public void failureAndRaiseReleaseSlots() throws Exception {
+        container.setConcurrencyLimit("group", 1);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ServiceController<?> failing = grouped(container.addService(ServiceName.of("failing"), new AbstractService<Void>() {
+            public void start(final StartContext context) throws StartException {
+                entered.countDown();
+                try {
+                    release.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new StartException(e);
+                }
+                throw new StartException("expected");
+            }
+        })).setConcurrencyGroup("group").install();
+        assertTrue(entered.await(10L, TimeUnit.SECONDS));
+        final ServiceController<?> second = grouped(container.addService(ServiceName.of("second"), Service.NULL)).setConcurrencyGroup("group").install();
+        final ServiceController<?> third = grouped(container.addService(ServiceName.of("third"), Service.NULL)).setConcurrencyGroup("group").install();
+        Thread.sleep(100L);
+        // queued starts stay in STARTING until the group lets them run
+        assertEquals(ServiceController.State.STARTING, second.getState());
+        // raising the limit lets a waiting start through right away
+        container.setConcurrencyLimit("group", 2);
+        assertTrue(awaitAnyUp(second, third));
+        release.countDown();
+        awaitState(failing, ServiceController.State.START_FAILED);
+        awaitState(second, ServiceController.State.UP);
+        awaitState(third, ServiceController.State.UP);
+    }
+
+    @Test
+    public void idleGroupsAreDropped() throws Exception {
+        final ServiceContainerImpl containerImpl = (ServiceContainerImpl) container;
+        container.setConcurrencyLimit("limited", 1);
+        final ServiceController<?> first = grouped(container.addService(ServiceName.of("first"), Service.NULL)).setConcurrencyGroup("transient").install();
+        final ServiceController<?> second = grouped(container.addService(ServiceName.of("second"), Service.NULL)).setConcurrencyGroup("transient").install();
+        awaitState(first, ServiceController.State.UP);
+        awaitState(second, ServiceController.State.UP);
+        assertEquals(2, containerImpl.getConcurrencyGroupCount());
+        first.setMode(ServiceController.Mode.REMOVE);
+        awaitState(first, ServiceController.State.REMOVED);
+        assertEquals(2, containerImpl.getConcurrencyGroupCount());
+        second.setMode(ServiceController.Mode.REMOVE);
+        awaitState(second, ServiceController.State.REMOVED);
+        // the group with a limit is kept
+        assertEquals(1, containerImpl.getConcurrencyGroupCount());
+        // the name can be used again
+        final ServiceController<?> third = grouped(container.addService(ServiceName.of("third"), Service.NULL)).setConcurrencyGroup("transient").install();
+        awaitState(third, ServiceController.State.UP);
+        assertEquals(2, containerImpl.getConcurrencyGroupCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalLimit() {
+        container.setConcurrencyLimit("group", 0);
+    }
+
+    private static <T> GroupedServiceBuilder<T> grouped(final ServiceBuilder<T> builder) {
+        return (GroupedServiceBuilder<T>) builder;
+    }
+
+    private static boolean awaitAnyUp(final ServiceController<?> first, final ServiceController<?> second) throws InterruptedException {
+        for (int i = 0; i < 200; i ++) {
+            if (first.getState() == ServiceController.State.UP || second.getState() == ServiceController.State.UP) {
+                return true;
+            }
+            Thread.sleep(25L);
+        }
+        return false;
+    }
+
+    private static void awaitState(final ServiceController<?> controller, final ServiceController.State state) throws InterruptedException {
+        for (int i = 0; i < 200 && controller.getState() != state; i ++) {
+            Thread.sleep(25L);
+        }
+        assertEquals(state, controller.getState());
+    }
+}
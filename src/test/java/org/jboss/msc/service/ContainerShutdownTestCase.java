@@ -25,6 +25,9 @@ package org.jboss.msc.service;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
@@ -66,6 +69,20 @@ public class ContainerShutdownTestCase extends AbstractServiceTest{
         assertNull(serviceRemoval.get());
     }
 
+    @Test
+    public void testInvalidShutdownDeadline() throws Exception {
+        final ServiceName serviceName = ServiceName.of("service", "name");
+        final ServiceController<?> controller = addService(serviceName);
+        final Future<ServiceController<?>> serviceRemoval = testListener.expectServiceRemoval(serviceName);
+        System.setProperty("jboss.msc.shutdown.deadline", "soon");
+        try {
+            shutdownContainer();
+        } finally {
+            System.clearProperty("jboss.msc.shutdown.deadline");
+        }
+        assertController(controller, serviceRemoval);
+    }
+
     @Test
     public void testDoubleShutdownOnEmptyContainer() {
         shutdownContainer();
@@ -269,6 +286,35 @@ public class ContainerShutdownTestCase extends AbstractServiceTest{
         assertSame(State.REMOVED, serviceController3.getState());
     }
 
+    @Test
+    public void dependencyOrderedShutdownWithProgress() throws Exception {
+        final List<String> stopped = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch started = new CountDownLatch(3);
+        final CountDownLatch topStopping = new CountDownLatch(1);
+        final CountDownLatch releaseTop = new CountDownLatch(1);
+        serviceContainer.addService(ServiceName.of("base"), new OrderedService("base", stopped, started, null, null)).install();
+        serviceContainer.addService(ServiceName.of("mid"), new OrderedService("mid", stopped, started, null, null))
+                .addDependency(ServiceName.of("base")).install();
+        serviceContainer.addService(ServiceName.of("top"), new OrderedService("top", stopped, started, topStopping, releaseTop))
+                .addDependency(ServiceName.of("mid")).install();
+        assertTrue(started.await(10L, TimeUnit.SECONDS));
+        assertNull(serviceContainer.getShutdownProgress());
+
+        serviceContainer.shutdown();
+        assertTrue(topStopping.await(10L, TimeUnit.SECONDS));
+        final ShutdownProgress progress = serviceContainer.getShutdownProgress();
+        assertEquals(3, progress.getTotalCount());
+        assertEquals(3, progress.getRemainingCount());
+        // only the leaf has been asked to go away so far
+        assertEquals(Collections.singletonList(ServiceName.of("top")), progress.getBlockers());
+        releaseTop.countDown();
+        shutdownContainer();
+
+        assertEquals(Arrays.asList("top", "mid", "base"), stopped);
+        assertEquals(0, serviceContainer.getShutdownProgress().getRemainingCount());
+        assertTrue(serviceContainer.getShutdownProgress().getBlockers().isEmpty());
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void editContainerAfterShutdown() {
@@ -372,6 +418,38 @@ public class ContainerShutdownTestCase extends AbstractServiceTest{
         }
     }
 
+    private static final class OrderedService extends AbstractService<Void> {
+        private final String name;
+        private final List<String> stopped;
+        private final CountDownLatch started;
+        private final CountDownLatch stopping;
+        private final CountDownLatch release;
+
+        OrderedService(final String name, final List<String> stopped, final CountDownLatch started, final CountDownLatch stopping, final CountDownLatch release) {
+            this.name = name;
+            this.stopped = stopped;
+            this.started = started;
+            this.stopping = stopping;
+            this.release = release;
+        }
+
+        public void start(final StartContext context) {
+            started.countDown();
+        }
+
+        public void stop(final StopContext context) {
+            if (stopping != null) {
+                stopping.countDown();
+                try {
+                    release.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            stopped.add(name);
+        }
+    }
+
     private static final class TestTerminateListener implements TerminateListener {
 
         private volatile CountDownLatch countDown = new CountDownLatch(1);
@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test for the exit mode teardown of a container.
+ */
+public class ExitTeardownTestCase {
+
+    @Test
+    public void onlyMarkedServicesAreStoppedInReverseOrder() throws Exception {
+        final ServiceContainerImpl container = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        final List<String> stopped = Collections.synchronizedList(new ArrayList<String>());
+        final ServiceName a = ServiceName.of("a");
+        final ServiceName b = ServiceName.of("b");
+        final ServiceName c = ServiceName.of("c");
+        final ServiceName d = ServiceName.of("d");
+        final List<ServiceController.Transition> transitions = Collections.synchronizedList(new ArrayList<ServiceController.Transition>());
+        final ServiceListener<Object> listener = new AbstractServiceListener<Object>() {
+            public void transition(final ServiceController<?> controller, final ServiceController.Transition transition) {
+                transitions.add(transition);
+            }
+        };
+        // c -> b -> a; b is not marked, so c must still be stopped before a
+        container.addService(a, new MarkedService("a", stopped, false)).install();
+        container.addService(b, new RecordingService("b", stopped)).addDependency(a).install();
+        container.addService(c, new MarkedService("c", stopped, true)).addDependency(b).addListener(listener).install();
+        container.addService(d, new MarkedService("d", stopped, false)).setInitialMode(ServiceController.Mode.NEVER).install();
+        awaitUp(container, a);
+        awaitUp(container, b);
+        awaitUp(container, c);
+        // the listener is notified asynchronously
+        for (int i = 0; i < 100 && ! transitions.contains(ServiceController.Transition.STARTING_to_UP); i ++) {
+            Thread.sleep(50L);
+        }
+        transitions.clear();
+
+        container.exitShutdown();
+        assertEquals(Arrays.asList("c", "a"), stopped);
+        // no controller transition happened; the registry is untouched
+        assertTrue(transitions.isEmpty());
+        assertEquals(ServiceController.State.UP, container.getRequiredService(c).getState());
+        assertEquals(4, container.getServiceNames().size());
+        container.awaitTermination(10L, TimeUnit.SECONDS);
+        assertTrue(container.isShutdownComplete());
+    }
+
+    @Test
+    public void unfinishedStopIsAbandonedAtDeadline() throws Exception {
+        final ServiceContainerImpl container = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        final List<String> stopped = Collections.synchronizedList(new ArrayList<String>());
+        final ServiceName a = ServiceName.of("a");
+        final ServiceName hung = ServiceName.of("hung");
+        container.addService(a, new MarkedService("a", stopped, false)).install();
+        container.addService(hung, new HungService()).addDependency(a).install();
+        awaitUp(container, a);
+        awaitUp(container, hung);
+
+        System.setProperty("jboss.msc.shutdown.deadline", "200");
+        final long start = System.nanoTime();
+        try {
+            container.exitShutdown();
+        } finally {
+            System.clearProperty("jboss.msc.shutdown.deadline");
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10L));
+        // the dependency is still stopped once the hung dependent is given up on
+        assertEquals(Arrays.asList("a"), stopped);
+        container.awaitTermination(10L, TimeUnit.SECONDS);
+    }
+
+    private static void awaitUp(final ServiceContainer container, final ServiceName name) throws InterruptedException {
+        final ServiceController<?> controller = container.getRequiredService(name);
+        for (int i = 0; i < 100 && controller.getState() != ServiceController.State.UP; i ++) {
+            Thread.sleep(50L);
+        }
+        assertEquals(ServiceController.State.UP, controller.getState());
+    }
+
+    private static class RecordingService extends AbstractService<Void> {
+        private final String name;
+        private final List<String> stopped;
+
+        RecordingService(final String name, final List<String> stopped) {
+            this.name = name;
+            this.stopped = stopped;
+        }
+
+        public void stop(final StopContext context) {
+            stopped.add(name);
+        }
+    }
+
+    private static final class HungService extends AbstractService<Void> implements StopOnExit {
+        public void stop(final StopContext context) {
+            // never completes
+            context.asynchronous();
+        }
+    }
+
+    private static final class MarkedService extends RecordingService implements StopOnExit {
+        private final String name;
+        private final List<String> stopped;
+        private final boolean async;
+
+        MarkedService(final String name, final List<String> stopped, final boolean async) {
+            super(name, stopped);
+            this.name = name;
+            this.stopped = stopped;
+            this.async = async;
+        }
+
+        public void stop(final StopContext context) {
+            if (! async) {
+                super.stop(context);
+                return;
+            }
+            context.asynchronous();
+            new Thread(new Runnable() {
+                public void run() {
+                    stopped.add(name);
+                    context.complete();
+                }
+            }).start();
+        }
+    }
+}
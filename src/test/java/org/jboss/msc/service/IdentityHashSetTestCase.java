@@ -25,6 +25,7 @@ package org.jboss.msc.service;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -37,6 +38,7 @@ import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -154,6 +156,102 @@ public class IdentityHashSetTestCase {
         } catch (AssertionError e) {}
     }
 
+    @Test
+    public void toCompactArray() {
+        final String[] empty = new String[0];
+        final IdentityHashSet<String> set = new IdentityHashSet<String>(1000);
+        assertSame(empty, set.toCompactArray(empty));
+        final Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 10; i++) {
+            final String entry = "entry" + i;
+            set.add(entry);
+            expected.add(entry);
+        }
+        final Object[] array = set.toCompactArray(new Object[0]);
+        assertEquals(10, array.length);
+        for (Object entry : array) {
+            assertTrue(expected.remove(entry));
+        }
+        assertTrue(expected.isEmpty());
+    }
+
+    @Test
+    public void forEach() {
+        final IdentityHashSet<String> set = new IdentityHashSet<String>();
+        final List<String> entries = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            entries.add("entry" + i);
+        }
+        set.addAll(entries);
+        // identity based, so the very same instance must be removed
+        set.remove(entries.get(7));
+        final Set<String> visited = new HashSet<String>();
+        set.forEach(new IdentityHashSet.Visitor<String, Set<String>>() {
+            public void visit(final String element, final Set<String> param) {
+                assertTrue(param.add(element));
+            }
+        }, visited);
+        assertEquals(19, visited.size());
+        assertFalse(visited.contains("entry7"));
+    }
+
+    @Test
+    public void inlineElements() throws Exception {
+        final IdentityHashSet<String> set = new IdentityHashSet<String>(0);
+        final String a = "a", b = "b", c = "c";
+        assertTrue(set.add(a));
+        assertFalse(set.add(a));
+        assertTrue(set.add(b));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(a));
+        assertTrue(set.contains(b));
+        assertFalse(set.contains(c));
+
+        final IdentityHashSet<String> copy = new IdentityHashSet<String>(set);
+        final IdentityHashSet<String> clone = set.clone();
+        assertTrue(set.remove(a));
+        assertFalse(set.remove(a));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(b));
+        assertEquals(2, copy.size());
+        assertEquals(2, clone.size());
+
+        // removal through the iterator
+        final Iterator<String> iterator = clone.iterator();
+        assertTrue(iterator.hasNext());
+        final String removed = iterator.next();
+        iterator.remove();
+        assertFalse(clone.contains(removed));
+        assertTrue(iterator.hasNext());
+        assertTrue(clone.contains(iterator.next()));
+        assertFalse(iterator.hasNext());
+        assertEquals(1, clone.size());
+
+        // a third element moves the elements into a table
+        assertTrue(copy.add(c));
+        assertEquals(3, copy.size());
+        assertTrue(copy.contains(a));
+        assertTrue(copy.contains(b));
+        assertTrue(copy.contains(c));
+        assertTrue(copy.remove(b));
+        assertEquals(2, copy.size());
+        assertTrue(copy.contains(a));
+        assertTrue(copy.contains(c));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(set);
+        output.close();
+        final Set<?> read = (Set<?>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(1, read.size());
+        assertTrue(read.contains(read.iterator().next()));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(b));
+        assertFalse(set.iterator().hasNext());
+    }
+
     @Test
     public void copySet() {
         final Set<String> set = new HashSet<String>();
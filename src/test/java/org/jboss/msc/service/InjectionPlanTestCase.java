@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.msc.inject.InjectionException;
+import org.jboss.msc.inject.Injector;
+import org.jboss.msc.inject.IntInjector;
+import org.jboss.msc.value.InjectedValue;
+import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
+import org.junit.Test;
+
+/**
+ * Test for {@link InjectionPlan}.
+ */
+public class InjectionPlanTestCase {
+
+    @Test
+    public void dependencyValueIsRetrievedOncePerStart() throws Exception {
+        final ServiceContainer container = ServiceContainer.Factory.create();
+        try {
+            final ServiceName dependencyName = ServiceName.of("dependency");
+            final ServiceName dependentName = ServiceName.of("dependent");
+            final Object value = new Object();
+            final AtomicInteger retrieved = new AtomicInteger();
+            container.addService(dependencyName, new AbstractService<Object>() {
+                public Object getValue() {
+                    retrieved.incrementAndGet();
+                    return value;
+                }
+            }).install();
+            final InjectedValue<Object> first = new InjectedValue<Object>();
+            final InjectedValue<Object> second = new InjectedValue<Object>();
+            final InjectedValue<Object> third = new InjectedValue<Object>();
+            final CountDownLatch started = new CountDownLatch(1);
+            container.addService(dependentName, new AbstractService<Void>() {
+                public void start(final StartContext context) throws StartException {
+                    started.countDown();
+                }
+            }).addDependency(dependencyName, first).addDependency(dependencyName, second).addDependency(dependencyName, third).install();
+            assertTrue(started.await(10L, TimeUnit.SECONDS));
+            assertSame(value, first.getValue());
+            assertSame(value, second.getValue());
+            assertSame(value, third.getValue());
+            assertEquals(1, retrieved.get());
+        } finally {
+            container.shutdown();
+            container.awaitTermination();
+        }
+    }
+
+    @Test
+    public void failureUninjectsInReverseOrder() {
+        final List<String> uninjected = new ArrayList<String>();
+        final InjectedValue<Object> first = new InjectedValue<Object>();
+        final InjectedValue<Object> second = new InjectedValue<Object>();
+        final Value<Object> failing = new Value<Object>() {
+            public Object getValue() {
+                throw new InjectionException("failed");
+            }
+        };
+        final InjectionPlan plan = new InjectionPlan(new ValueInjection<?>[] {
+                new ValueInjection<Object>(Values.<Object>immediateValue("first"), new RecordingInjector("first", first, uninjected)),
+                new ValueInjection<Object>(Values.<Object>immediateValue("second"), new RecordingInjector("second", second, uninjected)),
+                new ValueInjection<Object>(failing, new RecordingInjector("failing", new InjectedValue<Object>(), uninjected)),
+        });
+        try {
+            plan.inject();
+            fail("InjectionException expected");
+        } catch (InjectionException expected) {
+        }
+        // as before the plan, the failed injection is uninjected too
+        assertEquals(Arrays.asList("failing", "second", "first"), uninjected);
+        assertNull(first.getOptionalValue());
+        assertNull(second.getOptionalValue());
+    }
+
+    @Test
+    public void primitiveInjectionIsNotBoxed() throws Exception {
+        final List<Object> injected = new ArrayList<Object>();
+        final IntInjector injector = new IntInjector() {
+            public void injectInt(final int value) {
+                injected.add("int " + value);
+            }
+
+            public void inject(final Integer value) {
+                injected.add(value);
+            }
+
+            public void uninject() {
+            }
+        };
+        final ServiceContainer container = ServiceContainer.Factory.create();
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            container.addService(ServiceName.of("primitive"), new AbstractService<Void>() {
+                public void start(final StartContext context) throws StartException {
+                    started.countDown();
+                }
+            }).addInjectionValue(injector, Values.immediateIntValue(8080)).addInjection(injector, Integer.valueOf(8443)).install();
+            assertTrue(started.await(10L, TimeUnit.SECONDS));
+            assertEquals(2, injected.size());
+            assertEquals("int 8080", injected.get(0));
+            assertEquals(Integer.valueOf(8443), injected.get(1));
+        } finally {
+            container.shutdown();
+            container.awaitTermination();
+        }
+    }
+
+    private static final class RecordingInjector implements Injector<Object> {
+        private final String name;
+        private final Injector<Object> delegate;
+        private final List<String> uninjected;
+
+        RecordingInjector(final String name, final Injector<Object> delegate, final List<String> uninjected) {
+            this.name = name;
+            this.delegate = delegate;
+            this.uninjected = uninjected;
+        }
+
+        public void inject(final Object value) {
+            delegate.inject(value);
+        }
+
+        public void uninject() {
+            uninjected.add(name);
+            delegate.uninject();
+        }
+    }
+}
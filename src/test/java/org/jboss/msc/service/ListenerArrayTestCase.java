@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.msc.value.ImmediateValue;
+import org.junit.Test;
+
+/**
+ * Test for {@link ListenerArray}.
+ */
+public class ListenerArrayTestCase {
+
+    private final ServiceListener<Object> none = new AbstractServiceListener<Object>() {};
+    private final ServiceListener<Object> once = new AbstractServiceListener<Object>() {};
+    private final ServiceListener<Object> all = new AbstractServiceListener<Object>() {};
+
+    @Test
+    public void putAndRemove() {
+        ListenerArray array = ListenerArray.EMPTY.put(none, ServiceListener.Inheritance.NONE);
+        array = array.put(all, ServiceListener.Inheritance.ALL);
+        assertEquals(2, array.getListeners().length);
+        assertTrue(array.contains(none));
+        assertTrue(array.contains(all));
+        assertFalse(array.contains(once));
+        assertSame(array, array.put(all, ServiceListener.Inheritance.ALL));
+        assertSame(array, array.remove(once));
+        final ListenerArray removed = array.remove(none);
+        assertEquals(1, removed.getListeners().length);
+        assertSame(all, removed.getListeners()[0]);
+        // the original is unchanged
+        assertEquals(2, array.getListeners().length);
+        assertSame(ListenerArray.EMPTY, removed.remove(all));
+    }
+
+    @Test
+    public void inherited() {
+        final Map<ServiceListener<Object>, ServiceListener.Inheritance> map = new IdentityHashMap<ServiceListener<Object>, ServiceListener.Inheritance>();
+        map.put(none, ServiceListener.Inheritance.NONE);
+        map.put(once, ServiceListener.Inheritance.ONCE);
+        map.put(all, ServiceListener.Inheritance.ALL);
+        final ListenerArray array = ListenerArray.of(map);
+
+        final ListenerArray first = array.getInherited(true);
+        assertEquals(2, first.getListeners().length);
+        assertFalse(first.contains(none));
+        assertTrue(first.contains(once));
+        assertTrue(first.contains(all));
+        // a ONCE listener is not passed on by the child
+        assertEquals(1, first.getInherited(true).getListeners().length);
+        assertTrue(first.getInherited(true).contains(all));
+
+        final ListenerArray other = array.getInherited(false);
+        assertEquals(1, other.getListeners().length);
+        assertTrue(other.contains(all));
+
+        // computed once and shared by all children
+        assertSame(first, array.getInherited(true));
+        assertSame(other, array.getInherited(false));
+        // a list of ALL listeners is inherited as is
+        assertSame(other, other.getInherited(true));
+        assertSame(first, first.putAll(other));
+    }
+
+    @Test
+    public void sameListenersShareList() {
+        final Map<ServiceListener<Object>, ServiceListener.Inheritance> map = new IdentityHashMap<ServiceListener<Object>, ServiceListener.Inheritance>();
+        map.put(none, ServiceListener.Inheritance.NONE);
+        map.put(all, ServiceListener.Inheritance.ALL);
+        final ListenerArray first = ListenerArray.of(map, null);
+        assertSame(first, ListenerArray.of(map, first));
+        map.put(all, ServiceListener.Inheritance.ONCE);
+        final ListenerArray changed = ListenerArray.of(map, first);
+        assertTrue(changed != first);
+        map.put(once, ServiceListener.Inheritance.ONCE);
+        assertEquals(3, ListenerArray.of(map, changed).getListeners().length);
+    }
+
+    @Test
+    public void childrenShareInheritedListeners() throws Exception {
+        final ServiceContainer container = ServiceContainer.Factory.create();
+        try {
+            final ServiceName parentName = ServiceName.of("parent");
+            final ServiceControllerImpl<?>[] children = new ServiceControllerImpl<?>[2];
+            final CountDownLatch latch = new CountDownLatch(1);
+            final ServiceControllerImpl<?> parent = (ServiceControllerImpl<?>) container.addService(parentName, new AbstractService<Void>() {
+                public void start(final StartContext context) throws StartException {
+                    final ServiceTarget childTarget = context.getChildTarget();
+                    children[0] = (ServiceControllerImpl<?>) childTarget.addService(parentName.append("one"), Service.NULL).install();
+                    children[1] = (ServiceControllerImpl<?>) childTarget.addService(parentName.append("two"), Service.NULL).install();
+                    latch.countDown();
+                }
+            }).addListener(ServiceListener.Inheritance.ALL, all).install();
+            assertTrue(latch.await(10L, TimeUnit.SECONDS));
+            assertSame(parent.getListenerList(), children[0].getListenerList());
+            assertSame(parent.getListenerList(), children[1].getListenerList());
+        } finally {
+            container.shutdown();
+            container.awaitTermination();
+        }
+    }
+
+    @Test
+    public void descendantLinks() {
+        final ListenerArray top = ListenerArray.EMPTY.put(all, ServiceListener.Inheritance.ALL);
+        final ListenerArray.Link topLink = new ListenerArray.Link(top, null, 3);
+        final ListenerArray.Link emptyLink = new ListenerArray.Link(ListenerArray.EMPTY, topLink, 3);
+        // a level without listeners of its own shares the list of its ancestors
+        assertSame(top, emptyLink.getListeners());
+        assertTrue(emptyLink.isCurrent(3));
+        assertFalse(emptyLink.isCurrent(4));
+        final ListenerArray middle = ListenerArray.EMPTY.put(once, ServiceListener.Inheritance.ALL);
+        final ListenerArray merged = new ListenerArray.Link(middle, topLink, 3).getListeners();
+        assertEquals(2, merged.getListeners().length);
+        assertTrue(merged.contains(once));
+        assertTrue(merged.contains(all));
+    }
+
+    @Test
+    public void grandchildInheritsLateAncestorListener() throws Exception {
+        final ServiceContainer container = ServiceContainer.Factory.create();
+        try {
+            final ServiceName parentName = ServiceName.of("parent");
+            final ServiceName childName = parentName.append("child");
+            final CountDownLatch childStarted = new CountDownLatch(1);
+            final ServiceControllerImpl<?> parent = (ServiceControllerImpl<?>) container.addService(parentName, new AbstractService<Void>() {
+                public void start(final StartContext context) throws StartException {
+                    context.getChildTarget().addService(childName, new AbstractService<Void>() {
+                        public void start(final StartContext context) throws StartException {
+                            childStarted.countDown();
+                        }
+                    }).install();
+                }
+            }).install();
+            assertTrue(childStarted.await(10L, TimeUnit.SECONDS));
+            final ServiceControllerImpl<?> child = (ServiceControllerImpl<?>) container.getRequiredService(childName);
+            final ServiceControllerImpl<?> grandchild1 = (ServiceControllerImpl<?>) installChild(container, child, childName.append("one"));
+            assertTrue(grandchild1.getListenerList().isEmpty());
+            final ListenerArray.Link link = parent.getDescendantLink();
+            assertSame(link, parent.getDescendantLink());
+
+            // listeners added to the parent after the child was installed still reach new grandchildren
+            parent.addListener(ServiceListener.Inheritance.ALL, all);
+            parent.addListener(ServiceListener.Inheritance.ONCE, once);
+            assertFalse(child.getListenerList().contains(all));
+            final ServiceControllerImpl<?> grandchild2 = (ServiceControllerImpl<?>) installChild(container, child, childName.append("two"));
+            assertTrue(grandchild2.getListenerList().contains(all));
+            assertFalse(grandchild2.getListenerList().contains(once));
+            assertSame(parent.getListenerList().getInherited(false), parent.getDescendantLink().getListeners());
+
+            // only removing a listener passed on to all descendants invalidates the links
+            final ListenerArray.Link current = parent.getDescendantLink();
+            parent.removeListener(once);
+            parent.removeListener(none);
+            assertSame(current, parent.getDescendantLink());
+            parent.removeListener(all);
+            assertNotSame(current, parent.getDescendantLink());
+            final ServiceControllerImpl<?> grandchild3 = (ServiceControllerImpl<?>) installChild(container, child, childName.append("three"));
+            assertFalse(grandchild3.getListenerList().contains(all));
+        } finally {
+            container.shutdown();
+            container.awaitTermination();
+        }
+    }
+
+    private static ServiceController<?> installChild(final ServiceContainer container, final ServiceControllerImpl<?> parent, final ServiceName name) {
+        return new ServiceBuilderImpl<Void>((ServiceTargetImpl) container, new ImmediateValue<Service<Void>>(Service.NULL), name, parent).install();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link BlockingLifecycleContext#beginBlocking()} and {@link BlockingLifecycleContext#endBlocking()}.
+ */
+public class ManagedBlockingTestCase {
+
+    private ServiceContainer container;
+
+    @Before
+    public void setUp() {
+        // a single thread: unless the blocked thread is compensated, the second service could never start
+        container = ServiceContainer.Factory.create(1, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void declaredBlockingIsCompensated() throws Exception {
+        final CountDownLatch otherStarted = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Throwable[] failure = new Throwable[1];
+        container.addService(ServiceName.of("blocking"), new AbstractService<Void>() {
+            public void start(final StartContext startContext) throws StartException {
+                final BlockingLifecycleContext context = (BlockingLifecycleContext) startContext;
+                context.beginBlocking();
+                try {
+                    // nested sections do not add further threads
+                    context.beginBlocking();
+                    try {
+                        if (! otherStarted.await(10L, TimeUnit.SECONDS)) {
+                            failure[0] = new IllegalStateException("Other service never started");
+                        }
+                    } finally {
+                        context.endBlocking();
+                    }
+                } catch (InterruptedException e) {
+                    failure[0] = e;
+                } finally {
+                    context.endBlocking();
+                }
+                try {
+                    context.endBlocking();
+                    failure[0] = new IllegalStateException("Unmatched endBlocking() was accepted");
+                } catch (IllegalStateException expected) {
+                }
+                done.countDown();
+            }
+        }).install();
+        container.addService(ServiceName.of("other"), new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                otherStarted.countDown();
+            }
+        }).install();
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+        assertNull(failure[0]);
+        awaitUp(ServiceName.of("blocking"));
+        awaitUp(ServiceName.of("other"));
+    }
+
+    @Test
+    public void completedContextRejectsBlocking() throws Exception {
+        final BlockingLifecycleContext[] saved = new BlockingLifecycleContext[1];
+        container.addService(ServiceName.of("service"), new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                saved[0] = (BlockingLifecycleContext) context;
+            }
+        }).install();
+        awaitUp(ServiceName.of("service"));
+        try {
+            saved[0].beginBlocking();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private void awaitUp(final ServiceName name) throws InterruptedException {
+        final ServiceController<?> controller = container.getRequiredService(name);
+        for (int i = 0; i < 100 && controller.getState() != ServiceController.State.UP; i ++) {
+            Thread.sleep(50L);
+        }
+        assertEquals(ServiceController.State.UP, controller.getState());
+    }
+}
@@ -135,6 +135,23 @@ public class MultipleListenersTestCase extends AbstractServiceTest {
         assertTrue(listener1.startedServices.contains(firstServiceName));
     }
 
+    @Test
+    public void failingListenerDoesNotAffectOthers() throws Exception {
+        final LatchedFinishListener latch = new LatchedFinishListener();
+        final MockListener listener1 = new MockListener(latch);
+        final MockListener listener2 = new MockListener(latch);
+        final ServiceListener<Object> failing = new AbstractServiceListener<Object>() {
+            public void transition(final ServiceController<? extends Object> serviceController, final ServiceController.Transition transition) {
+                throw new IllegalStateException("Listener failure");
+            }
+        };
+        serviceContainer.addService(firstServiceName, Service.NULL).addListener(listener1).addListener(failing)
+                .addListener(listener2).install();
+        latch.await();
+        assertTrue(listener1.startedServices.contains(firstServiceName));
+        assertTrue(listener2.startedServices.contains(firstServiceName));
+    }
+
     private static class MockListener extends AbstractServiceListener<Object> {
 
         private final LatchedFinishListener latch;
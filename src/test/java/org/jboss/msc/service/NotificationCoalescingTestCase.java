@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that opposite notifications which are still pending cancel each other out.
+ */
+public class NotificationCoalescingTestCase {
+
+    private ServiceContainer container;
+
+    @Before
+    public void setUp() {
+        // a single thread, so that pending tasks can be held back
+        container = ServiceContainer.Factory.create(1, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void removeRequestFlipIsCoalesced() throws Exception {
+        final AtomicInteger requested = new AtomicInteger();
+        final AtomicInteger cleared = new AtomicInteger();
+        final CountDownLatch added = new CountDownLatch(1);
+        final CountDownLatch removed = new CountDownLatch(1);
+        final ServiceController<?> controller = container.addService(ServiceName.of("flipping"), Service.NULL)
+                .setInitialMode(ServiceController.Mode.NEVER)
+                .addListener(new AbstractServiceListener<Object>() {
+                    public void listenerAdded(final ServiceController<?> controller) {
+                        added.countDown();
+                    }
+
+                    public void serviceRemoveRequested(final ServiceController<?> controller) {
+                        requested.incrementAndGet();
+                    }
+
+                    public void serviceRemoveRequestCleared(final ServiceController<?> controller) {
+                        cleared.incrementAndGet();
+                    }
+
+                    public void transition(final ServiceController<?> controller, final ServiceController.Transition transition) {
+                        if (transition == ServiceController.Transition.REMOVING_to_REMOVED) {
+                            removed.countDown();
+                        }
+                    }
+                }).install();
+        assertTrue(added.await(10L, TimeUnit.SECONDS));
+
+        // occupy the only container thread so that the notifications stay pending
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        container.addService(ServiceName.of("blocker"), new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                blocking.countDown();
+                try {
+                    release.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).install();
+        assertTrue(blocking.await(10L, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i ++) {
+            controller.setMode(ServiceController.Mode.REMOVE);
+            controller.setMode(ServiceController.Mode.NEVER);
+        }
+        release.countDown();
+
+        controller.setMode(ServiceController.Mode.REMOVE);
+        assertTrue(removed.await(10L, TimeUnit.SECONDS));
+        assertEquals(1, requested.get());
+        assertEquals(0, cleared.get());
+    }
+
+    @Test
+    public void coalescedPairIsRecordedForSubscribers() throws Exception {
+        final ServiceName missing = ServiceName.of("missing");
+        final ServiceName problem = ServiceName.of("problem");
+        final ServiceName flipped = ServiceName.of("flipped");
+        final List<ServiceEvent.Kind> recorded = new ArrayList<ServiceEvent.Kind>();
+        final CountDownLatch recordedBoth = new CountDownLatch(2);
+        container.subscribe(ServiceEventFilter.all().withPrefixes(problem).withKinds(ServiceEvent.Kind.IMMEDIATE_DEPENDENCY_UNAVAILABLE,
+                ServiceEvent.Kind.IMMEDIATE_DEPENDENCY_AVAILABLE), 64, new ServiceEventConsumer() {
+            public void handleEvents(final List<ServiceEvent> events, final long dropped) {
+                synchronized (recorded) {
+                    for (ServiceEvent event : events) {
+                        recorded.add(event.getKind());
+                        recordedBoth.countDown();
+                    }
+                }
+            }
+        });
+        final AtomicInteger unavailable = new AtomicInteger();
+        final AtomicInteger available = new AtomicInteger();
+        final CountDownLatch added = new CountDownLatch(1);
+        // "problem" is held in the PROBLEM state by its transitively missing dependency
+        container.addService(ServiceName.of("intermediate"), Service.NULL).addDependency(missing).install();
+        final ServiceControllerImpl<?> controller = (ServiceControllerImpl<?>) container.addService(problem, Service.NULL)
+                .addDependency(ServiceName.of("intermediate"))
+                .addListener(new AbstractServiceListener<Object>() {
+                    public void listenerAdded(final ServiceController<?> controller) {
+                        added.countDown();
+                    }
+
+                    public void immediateDependencyUnavailable(final ServiceController<?> controller) {
+                        unavailable.incrementAndGet();
+                    }
+
+                    public void immediateDependencyAvailable(final ServiceController<?> controller) {
+                        available.incrementAndGet();
+                    }
+                }).install();
+        assertTrue(added.await(10L, TimeUnit.SECONDS));
+        for (int i = 0; i < 200 && ! isProblem(controller); i ++) {
+            Thread.sleep(25L);
+        }
+        assertTrue(isProblem(controller));
+
+        // occupy the only container thread so that the notifications stay pending
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        container.addService(ServiceName.of("blocker"), new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                blocking.countDown();
+                try {
+                    release.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).install();
+        assertTrue(blocking.await(10L, TimeUnit.SECONDS));
+        controller.immediateDependencyUnavailable(flipped);
+        controller.immediateDependencyAvailable(flipped);
+        release.countDown();
+
+        assertTrue(recordedBoth.await(10L, TimeUnit.SECONDS));
+        synchronized (recorded) {
+            assertEquals(Arrays.asList(ServiceEvent.Kind.IMMEDIATE_DEPENDENCY_UNAVAILABLE, ServiceEvent.Kind.IMMEDIATE_DEPENDENCY_AVAILABLE), recorded);
+        }
+        // the listener itself saw neither notification
+        assertEquals(0, unavailable.get());
+        assertEquals(0, available.get());
+    }
+
+    private static boolean isProblem(final ServiceControllerImpl<?> controller) {
+        synchronized (controller) {
+            return controller.getSubstateLocked() == ServiceController.Substate.PROBLEM;
+        }
+    }
+}
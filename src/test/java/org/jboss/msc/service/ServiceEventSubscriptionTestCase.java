@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link ServiceContainer#subscribe(ServiceEventFilter, int, ServiceEventConsumer)}.
+ */
+public class ServiceEventSubscriptionTestCase {
+
+    private ServiceContainer container;
+
+    @Before
+    public void setUp() {
+        container = ServiceContainer.Factory.create();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void filteredEvents() throws Exception {
+        final ServiceName app = ServiceName.of("app");
+        final List<ServiceEvent> received = new ArrayList<ServiceEvent>();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final ServiceEventFilter filter = ServiceEventFilter.all().withPrefixes(app)
+                .withKinds(ServiceEvent.Kind.TRANSITION).withTransitions(ServiceController.Transition.STARTING_to_UP);
+        container.subscribe(filter, 64, new ServiceEventConsumer() {
+            public void handleEvents(final List<ServiceEvent> events, final long dropped) {
+                synchronized (received) {
+                    received.addAll(events);
+                }
+                for (int i = 0; i < events.size(); i ++) {
+                    latch.countDown();
+                }
+            }
+        });
+        container.addService(app.append("one"), Service.NULL).install();
+        container.addService(ServiceName.of("other"), Service.NULL).install();
+        container.addService(app.append("two"), Service.NULL).install();
+        container.addService(app, Service.NULL).install();
+        assertTrue(latch.await(10L, TimeUnit.SECONDS));
+        // let any stray event arrive
+        Thread.sleep(100L);
+        synchronized (received) {
+            assertEquals(3, received.size());
+            final Set<ServiceName> names = new HashSet<ServiceName>();
+            for (ServiceEvent event : received) {
+                assertEquals(ServiceEvent.Kind.TRANSITION, event.getKind());
+                assertEquals(ServiceController.Transition.STARTING_to_UP, event.getTransition());
+                names.add(event.getServiceName());
+            }
+            assertTrue(names.contains(app));
+            assertTrue(names.contains(app.append("one")));
+            assertTrue(names.contains(app.append("two")));
+        }
+    }
+
+    @Test
+    public void fullBufferDropsEvents() throws Exception {
+        final CountDownLatch inConsumer = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong reportedDrops = new AtomicLong();
+        final AtomicLong largestBatch = new AtomicLong();
+        final ServiceEventSubscription subscription = container.subscribe(ServiceEventFilter.all(), 4, new ServiceEventConsumer() {
+            public void handleEvents(final List<ServiceEvent> events, final long dropped) {
+                if (events.size() > largestBatch.get()) {
+                    largestBatch.set(events.size());
+                }
+                delivered.addAndGet(events.size());
+                reportedDrops.addAndGet(dropped);
+                inConsumer.countDown();
+                try {
+                    release.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        for (int i = 0; i < 50; i ++) {
+            container.addService(ServiceName.of("service" + i), Service.NULL).install();
+        }
+        assertTrue(inConsumer.await(10L, TimeUnit.SECONDS));
+        final ServiceController<?> last = container.getRequiredService(ServiceName.of("service49"));
+        for (int i = 0; i < 200 && last.getState() != ServiceController.State.UP; i ++) {
+            Thread.sleep(25L);
+        }
+        assertTrue(subscription.getDroppedCount() > 0);
+        release.countDown();
+        subscription.cancel();
+        final long before = delivered.get();
+        container.addService(ServiceName.of("late"), Service.NULL).install();
+        Thread.sleep(100L);
+        // nothing recorded after cancellation; at most the buffered events arrive
+        assertTrue(delivered.get() - before <= 4);
+        assertTrue(reportedDrops.get() <= subscription.getDroppedCount());
+        assertTrue(largestBatch.get() <= 4);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link TransitionJournal}.
+ */
+public class TransitionJournalTestCase {
+
+    @Test
+    public void oldestEntriesAreOverwritten() {
+        final TransitionJournal journal = new TransitionJournal(8);
+        for (int i = 0; i < 20; i ++) {
+            journal.record(ServiceName.of("service" + i), ServiceController.Transition.STARTING_to_UP);
+        }
+        final List<String> lines = journal.getLines();
+        assertEquals(8, lines.size());
+        assertTrue(lines.get(0), lines.get(0).endsWith(" service12 STARTING_to_UP"));
+        assertTrue(lines.get(7), lines.get(7).endsWith(" service19 STARTING_to_UP"));
+        assertTrue(lines.get(7), lines.get(7).contains("[" + Thread.currentThread().getName() + "]"));
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception {
+        final TransitionJournal journal = new TransitionJournal(100);
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i ++) {
+            final ServiceName name = ServiceName.of("thread" + i);
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 10000; j ++) {
+                        journal.record(name, ServiceController.Transition.UP_to_STOP_REQUESTED);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(128, journal.getLines().size());
+    }
+
+    @Test
+    public void containerRecordsTransitions() throws Exception {
+        final ServiceContainerImpl container;
+        System.setProperty("jboss.msc.journal.size", "64");
+        try {
+            container = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        } finally {
+            System.clearProperty("jboss.msc.journal.size");
+        }
+        try {
+            final ServiceController<?> controller = container.addService(ServiceName.of("journaled"), Service.NULL).install();
+            for (int i = 0; i < 100 && controller.getState() != ServiceController.State.UP; i ++) {
+                Thread.sleep(50L);
+            }
+            boolean found = false;
+            for (String line : container.getJournal().getLines()) {
+                found |= line.endsWith(" journaled STARTING_to_UP");
+            }
+            assertTrue(found);
+        } finally {
+            container.shutdown();
+            container.awaitTermination(10L, TimeUnit.SECONDS);
+        }
+        final ServiceContainerImpl plain = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        assertNull(plain.getJournal());
+        plain.shutdown();
+    }
+
+    @Test
+    public void invalidSizeDisablesJournal() {
+        final ServiceContainerImpl container;
+        System.setProperty("jboss.msc.journal.size", "64k");
+        try {
+            container = (ServiceContainerImpl) ServiceContainer.Factory.create();
+        } finally {
+            System.clearProperty("jboss.msc.journal.size");
+        }
+        assertNull(container.getJournal());
+        container.shutdown();
+    }
+}
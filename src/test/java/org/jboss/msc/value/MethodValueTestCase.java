@@ -61,9 +61,10 @@ public class MethodValueTestCase {
     public void publicMethodValue() throws Exception {
         arguments.add(new ImmediateValue<Boolean>(false));
         final MethodValue<String> value = new MethodValue<String>(method, target, arguments);
-        Values.thisValue().setValue(Values.immediateValue(this));
+        // no parameter refers to the target, so the method sees the caller's contextual value
+        Values.thisValue().setValue(target);
         assertEquals("JBoss", value.getValue());
-        assertSame(this, Values.thisValue().getValue());
+        assertSame(target.getValue(), Values.thisValue().getValue());
     }
 
     @Test
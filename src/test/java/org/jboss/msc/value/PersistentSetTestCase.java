@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link PersistentSet}.
+ */
+public class PersistentSetTestCase {
+
+    @Test
+    public void addAndRemove() {
+        final PersistentSet<String> empty = PersistentSet.empty();
+        final PersistentSet<String> one = empty.with("a");
+        final PersistentSet<String> two = one.with("b").with(null);
+        assertTrue(empty.isEmpty());
+        assertEquals(1, one.size());
+        assertEquals(3, two.size());
+        assertTrue(two.contains(null));
+        assertSame(two, two.with("a"));
+        assertSame(two, two.without("c"));
+        final PersistentSet<String> removed = two.without("b");
+        assertEquals(list("a", null), new ArrayList<String>(removed));
+        // earlier snapshots are unchanged
+        assertEquals(list("a", "b", null), new ArrayList<String>(two));
+        assertEquals(list("a"), new ArrayList<String>(one));
+        assertSame(empty, one.without("a"));
+    }
+
+    @Test
+    public void matchesLinkedHashSet() {
+        // few distinct hash codes, so that both the trie and the collision chains are exercised
+        compare(500, 0x3f);
+        // distinct hash codes, for a deeper trie
+        compare(100000, -1);
+    }
+
+    private void compare(final int range, final int hashMask) {
+        final Random random = new Random(1234L);
+        final Set<Key> expected = new LinkedHashSet<Key>();
+        PersistentSet<Key> set = PersistentSet.empty();
+        for (int i = 0; i < 20000; i ++) {
+            final Key key = new Key(random.nextInt(range), hashMask);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.contains(key));
+                set = set.without(key);
+            } else {
+                assertEquals(expected.add(key), ! set.contains(key));
+                set = set.with(key);
+            }
+            assertEquals(expected.size(), set.size());
+            if (i % 1000 == 0) {
+                assertEquals(new ArrayList<Key>(expected), new ArrayList<Key>(set));
+            }
+        }
+        assertEquals(new ArrayList<Key>(expected), new ArrayList<Key>(set));
+        for (Key key : expected) {
+            set = set.without(key);
+            assertFalse(set.contains(key));
+        }
+        assertTrue(set.isEmpty());
+    }
+
+    private static List<String> list(final String... strings) {
+        final List<String> list = new ArrayList<String>();
+        for (String string : strings) {
+            list.add(string);
+        }
+        return list;
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(final int id, final int hashMask) {
+            this.id = id;
+            hash = (id & hashMask) * 0x9E3779B9;
+        }
+
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
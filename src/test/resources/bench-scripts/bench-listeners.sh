@@ -0,0 +1,4 @@
+for listeners in 0 4 16 64
+do
+	java -Xms2g -Xmx2g -classpath "./target/test-classes:./target/classes:$HOME/.m2/repository/org/jboss/modules/jboss-modules/1.0.0.Beta1-SNAPSHOT/jboss-modules-1.0.0.Beta1-SNAPSHOT.jar:$HOME/.m2/repository/org/jboss/logging/jboss-logging/3.0.0.Beta2/jboss-logging-3.0.0.Beta2.jar:$HOME/.m2/repository/junit/junit/4.7/junit-4.7.jar" org.jboss.msc.bench.ListenerBench ${1:-20000} $listeners
+done